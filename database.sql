@@ -51,15 +51,24 @@ CREATE TABLE `task` (
   `status` varchar(50) NOT NULL DEFAULT 'pending' COMMENT '任务状态: pending, in_progress, completed, cancelled',
   `priority` varchar(50) NOT NULL DEFAULT 'medium' COMMENT '优先级: low, medium, high, urgent',
   `parent_id` int DEFAULT NULL COMMENT '父任务ID，用于子任务',
+  `path` varchar(1000) CHARACTER SET ascii NOT NULL DEFAULT '' COMMENT '层级路径，由根任务到当前任务的ID组成，例如 /1/5/23/',
+  `depth` int NOT NULL DEFAULT 0 COMMENT '层级深度，顶层任务为0',
   `start_date` datetime DEFAULT NULL COMMENT '开始时间',
   `end_date` datetime DEFAULT NULL COMMENT '结束时间',
   `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   `due_date` datetime DEFAULT NULL COMMENT '截止日期',
   PRIMARY KEY (`id`),
-  KEY `idx_user_id` (`user_id`),
   KEY `idx_parent_id` (`parent_id`),
-  KEY `idx_status` (`status`)
+  KEY `idx_user_path` (`user_id`, `path`),
+  KEY `idx_user_created` (`user_id`, `created_at`, `id`),
+  KEY `idx_user_status_due` (`user_id`, `status`, `due_date`),
+  KEY `idx_user_priority_due` (`user_id`, `priority`, `due_date`),
+  KEY `idx_user_status_created` (`user_id`, `status`, `created_at`, `id`),
+  KEY `idx_user_priority_created` (`user_id`, `priority`, `created_at`, `id`),
+  KEY `idx_user_parent_created` (`user_id`, `parent_id`, `created_at`, `id`),
+  KEY `idx_user_due` (`user_id`, `due_date`, `id`),
+  FULLTEXT KEY `ft_title_description` (`title`, `description`) WITH PARSER ngram
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='任务表';
 
 -- ----------------------------
@@ -74,8 +83,8 @@ CREATE TABLE `task_log` (
   `description` text COMMENT '操作描述',
   `created_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   PRIMARY KEY (`id`),
-  KEY `idx_task_id` (`task_id`),
-  KEY `idx_user_id` (`user_id`),
+  KEY `idx_user_created` (`user_id`, `created_at`, `id`),
+  KEY `idx_task_user_created` (`task_id`, `user_id`, `created_at`, `id`),
   KEY `idx_created_at` (`created_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci COMMENT='任务日志表';
 
@@ -0,0 +1,35 @@
+package com.example.annotation;
+
+import com.example.utils.FlowAlgorithm;
+
+import java.lang.annotation.*;
+
+/**
+ * 接口级别的限流策略，标注在Controller方法上
+ * 已登录的请求按用户ID计数，未登录的请求按IP地址计数
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FlowLimit {
+
+    /**
+     * @return 计数周期内最大请求次数
+     */
+    int limit();
+
+    /**
+     * @return 计数周期，秒为单位
+     */
+    int period();
+
+    /**
+     * @return 超出请求限制后的封禁时间，秒为单位，为0则不封禁
+     */
+    int block() default 0;
+
+    /**
+     * @return 使用的限流算法
+     */
+    FlowAlgorithm algorithm() default FlowAlgorithm.FIXED_WINDOW;
+}
@@ -1,19 +1,128 @@
 package com.example.config;
 
-import org.springframework.amqp.core.Queue;
-import org.springframework.amqp.core.QueueBuilder;
+import com.example.entity.MailCommand;
+import com.example.utils.Const;
+import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 /**
  * RabbitMQ消息队列配置
+ * 邮件发送失败后依次进入延迟递增的重试队列，到期后回到邮件队列重新消费，
+ * 超过最大尝试次数或无法解析的消息进入死信队列等待人工处理
  */
 @Configuration
 public class RabbitConfiguration {
+
+    //邮件批量发送的最大批次大小
+    @Value("${spring.web.mail.batch-size}")
+    int batchSize;
+    //凑满一个批次的最长等待时间，毫秒为单位
+    @Value("${spring.web.mail.batch-timeout}")
+    long batchTimeout;
+    //邮件队列的初始消费者数量与最大消费者数量
+    @Value("${spring.web.mail.concurrency}")
+    int concurrency;
+    @Value("${spring.web.mail.max-concurrency}")
+    int maxConcurrency;
+    //每个消费者预取的消息数量，不小于批次大小
+    @Value("${spring.web.mail.prefetch}")
+    int prefetch;
+    //邮件最大尝试发送次数，包含首次发送
+    @Value("${spring.web.mail.retry.max-attempts}")
+    int maxAttempts;
+    //首次重试的延迟时间，之后每次乘以倍数，但不超过最大延迟，毫秒为单位
+    @Value("${spring.web.mail.retry.initial-interval}")
+    long initialInterval;
+    @Value("${spring.web.mail.retry.multiplier}")
+    double multiplier;
+    @Value("${spring.web.mail.retry.max-interval}")
+    long maxInterval;
+
+    /**
+     * 消息转换器，生产者与消费者统一使用JSON格式，邮件指令以短类型名标识，不暴露Java类名
+     * 同时兼容旧版本生产者以Java序列化格式发送的Map消息，只允许反序列化基础集合类型
+     * @return 消息转换器
+     */
+    @Bean
+    public MessageConverter messageConverter(){
+        DefaultJackson2JavaTypeMapper mapper = new DefaultJackson2JavaTypeMapper();
+        mapper.setIdClassMapping(Map.of(Const.MQ_TYPE_MAIL, MailCommand.class));
+        Jackson2JsonMessageConverter json = new Jackson2JsonMessageConverter();
+        json.setJavaTypeMapper(mapper);
+        SimpleMessageConverter legacy = new SimpleMessageConverter();
+        legacy.setAllowedListPatterns(List.of("java.util.*", "java.lang.*"));
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(json);
+        converter.addDelegate(MessageProperties.CONTENT_TYPE_SERIALIZED_OBJECT, legacy);
+        return converter;
+    }
+
     @Bean("mailQueue")
     public Queue queue(){
         return QueueBuilder
-                .durable("mail")
+                .durable(Const.MQ_MAIL)
                 .build();
     }
+
+    /**
+     * 邮件重试队列，每次重试对应一个固定延迟的队列，避免不同延迟的消息互相阻塞
+     * 消息在队列中到期后通过默认交换机回到邮件队列
+     * @return 重试队列
+     */
+    @Bean("mailRetryQueues")
+    public Declarables retryQueues(){
+        List<Declarable> queues = new ArrayList<>();
+        for (int attempt = 1; attempt < maxAttempts; attempt++) {
+            long delay = (long) Math.min(initialInterval * Math.pow(multiplier, attempt - 1), maxInterval);
+            queues.add(QueueBuilder
+                    .durable(Const.MQ_MAIL_RETRY + attempt)
+                    .ttl((int) delay)
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(Const.MQ_MAIL)
+                    .build());
+        }
+        return new Declarables(queues);
+    }
+
+    /**
+     * 邮件死信交换机与死信队列
+     * @return 死信交换机、队列以及绑定关系
+     */
+    @Bean("mailDeadLetter")
+    public Declarables deadLetter(){
+        DirectExchange exchange = new DirectExchange(Const.MQ_MAIL_DLX);
+        Queue queue = QueueBuilder.durable(Const.MQ_MAIL_DLQ).build();
+        return new Declarables(exchange, queue, BindingBuilder.bind(queue).to(exchange).with(Const.MQ_MAIL));
+    }
+
+    /**
+     * 邮件队列的监听容器，按批次消费并手动确认每一条消息，消费者数量随队列积压在上下限之间伸缩
+     * @param configurer 默认容器配置
+     * @param connectionFactory 连接工厂
+     * @return 监听容器工厂
+     */
+    @Bean("mailContainerFactory")
+    public SimpleRabbitListenerContainerFactory mailContainerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                     ConnectionFactory connectionFactory){
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(batchTimeout);
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(maxConcurrency, concurrency));
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
 }
@@ -1,24 +1,32 @@
 package com.example.config;
 
+import com.example.controller.endpoint.HeavyHitterEndpoint;
 import com.example.entity.RestBean;
 import com.example.entity.dto.Account;
 import com.example.entity.vo.response.AuthorizeVO;
 import com.example.filter.JwtAuthenticationFilter;
+import com.example.filter.LoginLimitingFilter;
 import com.example.filter.RequestLogFilter;
 import com.example.service.AccountService;
+import com.example.utils.BoundedPasswordEncoder;
 import com.example.utils.Const;
 import com.example.utils.JwtUtils;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -37,6 +45,9 @@ public class SecurityConfiguration {
     @Resource
     RequestLogFilter requestLogFilter;
 
+    @Resource
+    LoginLimitingFilter loginLimitingFilter;
+
     @Resource
     JwtUtils utils;
 
@@ -55,11 +66,13 @@ public class SecurityConfiguration {
                 .authorizeHttpRequests(conf -> conf
                         .requestMatchers("/api/auth/**", "/error").permitAll()
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
-                        .anyRequest().hasAnyRole(Const.ROLE_DEFAULT)
+                        //热点访问来源包含其他用户的IP与ID，只允许管理员查看
+                        .requestMatchers(EndpointRequest.to(HeavyHitterEndpoint.class)).hasRole(Const.ROLE_ADMIN)
+                        .anyRequest().hasAnyRole(Const.ROLE_DEFAULT, Const.ROLE_ADMIN)
                 )
                 .formLogin(conf -> conf
                         .loginProcessingUrl("/api/auth/login")
-                        .failureHandler(this::handleProcess)
+                        .failureHandler(this::onAuthenticationFailure)
                         .successHandler(this::handleProcess)
                         .permitAll()
                 )
@@ -74,15 +87,56 @@ public class SecurityConfiguration {
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(conf -> conf
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-                .addFilterBefore(requestLogFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(loginLimitingFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(requestLogFilter, LoginLimitingFilter.class)
                 .addFilterBefore(jwtAuthenticationFilter, RequestLogFilter.class)
                 .build();
     }
 
+    /**
+     * 用户名密码登录验证，密码使用了过时的算法或强度时，登录成功后将重新编码提交到密码哈希线程池异步执行并写回数据库
+     * 本次登录不等待重新编码的结果，线程池繁忙时跳过升级，下次登录再尝试，避免密码已校验通过却因繁忙导致登录失败
+     * @param encoder 密码编码器
+     * @return 验证提供者
+     */
+    @Bean
+    public DaoAuthenticationProvider authenticationProvider(BoundedPasswordEncoder encoder) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(encoder) {
+            @Override
+            protected Authentication createSuccessAuthentication(Object principal,
+                                                                 Authentication authentication,
+                                                                 UserDetails user) {
+                if(encoder.upgradeEncoding(user.getPassword())) {
+                    String rawPassword = authentication.getCredentials().toString();
+                    encoder.encodeAsync(rawPassword, password -> service.updatePassword(user, password));
+                }
+                return super.createSuccessAuthentication(principal, authentication, user);
+            }
+        };
+        provider.setUserDetailsService(service);
+        return provider;
+    }
+
+    /**
+     * 登录失败处理，只有用户名或密码错误才计入该用户名的失败次数，服务器繁忙等其他原因不计入
+     * @param request 请求
+     * @param response 响应
+     * @param exception 登录失败原因
+     * @throws IOException 可能的异常
+     */
+    private void onAuthenticationFailure(HttpServletRequest request,
+                                         HttpServletResponse response,
+                                         AuthenticationException exception) throws IOException {
+        if(exception instanceof BadCredentialsException)
+            loginLimitingFilter.recordFailure(request);
+        this.handleProcess(request, response, exception);
+    }
+
     /**
      * 将多种类型的Handler整合到同一个方法中，包含：
      * - 登录成功
      * - 登录失败
+     * - 密码哈希繁忙降载
      * - 未登录拦截/无权限拦截
      * @param request 请求
      * @param response 响应
@@ -94,7 +148,12 @@ public class SecurityConfiguration {
                                Object exceptionOrAuthentication) throws IOException {
         response.setContentType("application/json;charset=utf-8");
         PrintWriter writer = response.getWriter();
-        if(exceptionOrAuthentication instanceof AccessDeniedException exception) {
+        if(exceptionOrAuthentication instanceof BoundedPasswordEncoder.BusyException exception) {
+            response.setStatus(503);
+            response.setHeader("Retry-After", "1");
+            writer.write(RestBean
+                    .failure(503, exception.getMessage()).asJsonString());
+        } else if(exceptionOrAuthentication instanceof AccessDeniedException exception) {
             writer.write(RestBean
                     .forbidden(exception.getMessage()).asJsonString());
         } else if(exceptionOrAuthentication instanceof Exception exception) {
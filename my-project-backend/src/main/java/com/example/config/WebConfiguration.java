@@ -1,19 +1,108 @@
 package com.example.config;
 
+import com.example.interceptor.FlowLimitInterceptor;
+import com.example.utils.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.Arrays;
+import java.util.Map;
+
 /**
  * 一般Web服务相关配置
  */
+@Slf4j
 @Configuration
 public class WebConfiguration implements WebMvcConfigurer {
 
+    //密码哈希线程数量
+    @Value("${spring.security.password.threads}")
+    int hashThreads;
+    //密码哈希等待队列长度，超出后直接拒绝
+    @Value("${spring.security.password.queue}")
+    int hashQueue;
+    //等待密码哈希结果的最长时间，毫秒为单位
+    @Value("${spring.security.password.timeout}")
+    long hashTimeout;
+    //单次密码校验的目标耗时，毫秒为单位，启动时据此选择BCrypt强度
+    @Value("${spring.security.password.target-time}")
+    long hashTargetTime;
+    //BCrypt强度下限与上限
+    @Value("${spring.security.password.min-strength}")
+    int minStrength;
+    @Value("${spring.security.password.max-strength}")
+    int maxStrength;
+    //基准测试的采样次数，取中位数，避免启动期间的单次抖动影响强度选择
+    @Value("${spring.security.password.samples}")
+    int benchmarkSamples;
+
+    @Resource
+    FlowLimitInterceptor flowLimitInterceptor;
+
+    /**
+     * 注册接口级别限流拦截器
+     * @param registry 拦截器注册
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(flowLimitInterceptor);
+    }
+
+    /**
+     * 密码编码器，新密码统一以 {bcrypt} 前缀存储，强度由启动时的基准测试决定
+     * 没有前缀的旧密码以及强度低于当前配置的密码，会在登录成功后自动重新编码
+     * 哈希计算在独立的有界线程池中执行，繁忙时快速拒绝
+     * @param registry 监控指标注册
+     * @return PasswordEncoder
+     */
     @Bean
-    public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(MeterRegistry registry){
+        int strength = this.benchmarkStrength();
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(strength)));
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return new BoundedPasswordEncoder(encoder, hashThreads, hashQueue, hashTimeout, registry);
+    }
+
+    /**
+     * 在当前机器上多次测量最低强度的BCrypt耗时并取中位数，强度每加一耗时翻倍，
+     * 据此选出不超过目标耗时的最大强度，结果不会低于配置的强度下限
+     * 启动期间JIT预热、GC或其他服务争抢CPU都会让单次测量偏慢，进而悄悄选出更低的强度，
+     * 因此采样波动较大或结果落在下限时都会输出警告
+     * @return BCrypt强度
+     */
+    private int benchmarkStrength() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        encoder.encode("benchmark");
+        int samples = Math.max(benchmarkSamples, 1);
+        double[] costs = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            long start = System.nanoTime();
+            encoder.encode("benchmark");
+            costs[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(costs);
+        double cost = costs[samples / 2];
+        if(costs[samples - 1] > costs[0] * 2)
+            log.warn("密码哈希基准测试采样波动较大，最快 {}ms，最慢 {}ms，选用的强度可能偏低",
+                    Math.round(costs[0]), Math.round(costs[samples - 1]));
+        int strength = minStrength;
+        while (strength < maxStrength && cost * 2 <= hashTargetTime) {
+            strength++;
+            cost *= 2;
+        }
+        if(cost > hashTargetTime)
+            log.warn("密码哈希基准测试耗时 {}ms，已超过目标耗时，仍使用BCrypt强度下限: {}，请检查启动时的机器负载或调整目标耗时",
+                    Math.round(cost), minStrength);
+        log.info("密码哈希强度基准测试完成，选用BCrypt强度: {}，预计单次耗时: {}ms", strength, Math.round(cost));
+        return strength;
     }
 }
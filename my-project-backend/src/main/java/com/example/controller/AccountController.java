@@ -10,6 +10,7 @@ import com.example.entity.vo.response.AccountVO;
 import com.example.service.AccountDetailsService;
 import com.example.service.AccountService;
 import com.example.utils.Const;
+import com.example.utils.JwtUtils;
 import jakarta.annotation.Resource;
 import jakarta.validation.Valid;
 import org.springframework.web.bind.annotation.*;
@@ -26,6 +27,9 @@ public class AccountController {
     @Resource
     AccountDetailsService detailsService;
 
+    @Resource
+    JwtUtils utils;
+
     @GetMapping("/info")
     public RestBean<AccountVO> info(@RequestAttribute(Const.ATTR_USER_ID) int id) {
         Account account = accountService.findAccountById(id);
@@ -43,8 +47,8 @@ public class AccountController {
     @PostMapping("/save-details")
     public RestBean<Void> saveDetails(@RequestAttribute(Const.ATTR_USER_ID) int id,
                                       @RequestBody @Valid DetailsSaveVo DetailsVo) {
-        boolean success = detailsService.saveAccountDetails(id, DetailsVo);
-        return success ? RestBean.success() : RestBean.failure(400, "此用户名已被其他用户注册，请重新更换");
+        String result = detailsService.saveAccountDetails(id, DetailsVo);
+        return result == null ? RestBean.success() : RestBean.failure(400, result);
     }
 
     @PostMapping("modify-email")
@@ -53,4 +57,10 @@ public class AccountController {
         String result = accountService.modifyEmail(id, ModifyEmailVo);
         return result == null ? RestBean.success() : RestBean.failure(400, result);
     }
+
+    @PostMapping("/logout-all")
+    public RestBean<Void> logoutAll(@RequestAttribute(Const.ATTR_USER_ID) int id) {
+        utils.invalidateAllJwt(id);
+        return RestBean.success();
+    }
 }
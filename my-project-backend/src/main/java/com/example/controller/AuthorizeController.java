@@ -1,5 +1,6 @@
 package com.example.controller;
 
+import com.example.annotation.FlowLimit;
 import com.example.entity.RestBean;
 import com.example.entity.vo.request.ConfirmResetVO;
 import com.example.entity.vo.request.EmailRegisterVO;
@@ -37,6 +38,7 @@ public class AuthorizeController {
      * @return 是否请求成功
      */
     @GetMapping("/ask-code")
+    @FlowLimit(limit = 5, period = 60, block = 300)
     @Operation(summary = "请求邮件验证码")
     public RestBean<Void> askVerifyCode(@RequestParam @Email String email,
                                         @RequestParam @Pattern(regexp = "(register|reset|modify)")  String type,
@@ -1,16 +1,26 @@
 package com.example.controller;
 
+import com.example.annotation.FlowLimit;
 import com.example.entity.RestBean;
 import com.example.entity.dto.Task;
 import com.example.entity.vo.request.CreateTaskVO;
+import com.example.entity.vo.request.TaskQueryVO;
 import com.example.entity.vo.request.UpdateTaskVO;
+import com.example.entity.vo.response.CursorPageVO;
+import com.example.entity.vo.response.PageVO;
+import com.example.entity.vo.response.TaskTreeVO;
 import com.example.entity.vo.response.TaskVO;
 import com.example.service.TaskService;
 import com.example.utils.Const;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -19,6 +29,7 @@ import java.util.stream.Collectors;
 /**
  * 任务管理控制器
  */
+@Validated
 @RestController
 @RequestMapping("/api/task")
 @Tag(name = "任务管理", description = "任务相关接口")
@@ -53,13 +64,15 @@ public class TaskController {
     }
 
     @GetMapping("/list")
-    @Operation(summary = "获取任务列表")
-    public RestBean<List<TaskVO>> getAllTasks(@RequestAttribute(Const.ATTR_USER_ID) int userId) {
-        List<Task> tasks = taskService.getAllTasks(userId);
-        List<TaskVO> taskVOs = tasks.stream()
-                .map(task -> task.asViewObject(TaskVO.class))
-                .collect(Collectors.toList());
-        return RestBean.success(taskVOs);
+    @FlowLimit(limit = 120, period = 60)
+    @Operation(summary = "获取任务列表", description = "按状态、优先级、截止日期与父任务筛选并分页，cursor为上一页返回的next，为空表示第一页，" +
+            "切换筛选或排序条件时需要从第一页重新开始")
+    public RestBean<CursorPageVO<TaskVO>> getTaskPage(@Valid TaskQueryVO query,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+                                                      @RequestAttribute(Const.ATTR_USER_ID) int userId) {
+        CursorPageVO<Task> page = taskService.getTaskPage(userId, query, cursor, size);
+        return RestBean.success(page.map(task -> task.asViewObject(TaskVO.class)));
     }
 
     @GetMapping("/get/{id}")
@@ -73,6 +86,30 @@ public class TaskController {
         return RestBean.success(task.asViewObject(TaskVO.class));
     }
 
+    @GetMapping("/search")
+    @FlowLimit(limit = 60, period = 60)
+    @Operation(summary = "搜索任务", description = "在任务标题与描述中搜索关键词，多个关键词以空格分隔且需要全部命中，结果按相关度排序")
+    public RestBean<PageVO<TaskVO>> searchTasks(@RequestParam @NotBlank @Size(max = 64) String keyword,
+                                                @RequestParam(defaultValue = "1") @Min(1) @Max(50) int page,
+                                                @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+                                                @RequestAttribute(Const.ATTR_USER_ID) int userId) {
+        PageVO<Task> result = taskService.searchTasks(userId, keyword, page, size);
+        return RestBean.success(result.map(task -> task.asViewObject(TaskVO.class)));
+    }
+
+    @GetMapping("/tree")
+    @FlowLimit(limit = 120, period = 60)
+    @Operation(summary = "获取任务树", description = "指定rootId时返回该任务的子树，depth限制相对根任务的层级深度")
+    public RestBean<List<TaskTreeVO>> getTaskTree(@RequestParam(required = false) Integer rootId,
+                                                  @RequestParam(required = false) @Min(0) Integer depth,
+                                                  @RequestAttribute(Const.ATTR_USER_ID) int userId) {
+        List<TaskTreeVO> tree = taskService.getTaskTree(userId, rootId, depth);
+        if (tree == null) {
+            return RestBean.failure(404, "任务不存在");
+        }
+        return RestBean.success(tree);
+    }
+
     @GetMapping("/subtasks/{parentId}")
     @Operation(summary = "获取子任务列表")
     public RestBean<List<TaskVO>> getSubTasks(@PathVariable int parentId,
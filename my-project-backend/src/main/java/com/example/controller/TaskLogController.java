@@ -1,22 +1,26 @@
 package com.example.controller;
 
+import com.example.annotation.FlowLimit;
 import com.example.entity.RestBean;
 import com.example.entity.dto.TaskLog;
+import com.example.entity.vo.response.CursorPageVO;
 import com.example.entity.vo.response.TaskLogVO;
 import com.example.service.TaskLogService;
 import com.example.utils.Const;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * 任务日志控制器
  */
+@Validated
 @RestController
 @RequestMapping("/api/task-log")
 @Tag(name = "任务日志", description = "任务日志相关接口")
@@ -26,26 +30,26 @@ public class TaskLogController {
     private TaskLogService taskLogService;
 
     @GetMapping("/list/{taskId}")
-    @Operation(summary = "获取任务日志列表")
-    public RestBean<List<TaskLogVO>> getTaskLogs(@PathVariable int taskId) {
-        List<TaskLog> logs = taskLogService.getTaskLogs(taskId);
-        List<TaskLogVO> logVOs = logs.stream()
-                .map(log -> log.asViewObject(TaskLogVO.class))
-                .collect(Collectors.toList());
-        return RestBean.success(logVOs);
+    @Operation(summary = "获取任务日志列表", description = "按创建时间倒序分页，cursor为上一页返回的next，为空表示第一页")
+    public RestBean<CursorPageVO<TaskLogVO>> getTaskLogs(@PathVariable int taskId,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+                                                         @RequestAttribute(Const.ATTR_USER_ID) int userId) {
+        CursorPageVO<TaskLog> page = taskLogService.getTaskLogs(userId, taskId, cursor, size);
+        return RestBean.success(page.map(log -> log.asViewObject(TaskLogVO.class)));
     }
     
     @GetMapping("/user-logs")
-    @Operation(summary = "获取用户所有日志")
-    public RestBean<List<TaskLogVO>> getUserLogs(@RequestAttribute(Const.ATTR_USER_ID) int userId) {
-        List<TaskLog> logs = taskLogService.getUserLogs(userId);
-        List<TaskLogVO> logVOs = logs.stream()
-                .map(log -> log.asViewObject(TaskLogVO.class))
-                .collect(Collectors.toList());
-        return RestBean.success(logVOs);
+    @Operation(summary = "获取用户所有日志", description = "按创建时间倒序分页，cursor为上一页返回的next，为空表示第一页")
+    public RestBean<CursorPageVO<TaskLogVO>> getUserLogs(@RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+                                                         @RequestAttribute(Const.ATTR_USER_ID) int userId) {
+        CursorPageVO<TaskLog> page = taskLogService.getUserLogs(userId, cursor, size);
+        return RestBean.success(page.map(log -> log.asViewObject(TaskLogVO.class)));
     }
 
     @GetMapping("/statistics")
+    @FlowLimit(limit = 10, period = 60, block = 60)
     @Operation(summary = "获取任务统计信息")
     public RestBean<Map<String, Object>> getStatistics(@RequestAttribute(Const.ATTR_USER_ID) int userId) {
         Map<String, Object> stats = taskLogService.getStatistics(userId);
@@ -0,0 +1,25 @@
+package com.example.controller.endpoint;
+
+import com.example.utils.HeavyHitterDetector;
+import jakarta.annotation.Resource;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 高频访问者监控端点，通过 /actuator/heavyhitters 查看当前统计窗口内请求最多的IP地址与用户
+ */
+@Component
+@Endpoint(id = "heavyhitters")
+public class HeavyHitterEndpoint {
+
+    @Resource
+    HeavyHitterDetector detector;
+
+    @ReadOperation
+    public Map<String, Object> heavyHitters() {
+        return detector.snapshot();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.controller.exception;
+
+import com.example.entity.RestBean;
+import com.example.utils.BoundedPasswordEncoder;
+import com.example.utils.MailQueueMonitor;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * 用于处理服务繁忙、主动降载的控制器
+ */
+@Slf4j
+@RestControllerAdvice
+public class ServiceBusyController {
+
+    /**
+     * 密码哈希线程池已满时直接返回503，提示客户端稍后重试
+     * @param exception 繁忙异常
+     * @param response 响应
+     * @return 失败响应
+     */
+    @ExceptionHandler(BoundedPasswordEncoder.BusyException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public RestBean<Void> busyError(BoundedPasswordEncoder.BusyException exception,
+                                    HttpServletResponse response) {
+        log.warn("Resolved [{}: {}]", exception.getClass().getName(), exception.getMessage());
+        response.setHeader("Retry-After", "1");
+        return RestBean.failure(503, exception.getMessage());
+    }
+
+    /**
+     * 邮件队列饱和时直接返回503，并提示客户端多久之后重试
+     * @param exception 饱和异常
+     * @param response 响应
+     * @return 失败响应
+     */
+    @ExceptionHandler(MailQueueMonitor.SaturatedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public RestBean<Void> saturatedError(MailQueueMonitor.SaturatedException exception,
+                                         HttpServletResponse response) {
+        log.warn("Resolved [{}: {}]", exception.getClass().getName(), exception.getMessage());
+        response.setHeader("Retry-After", String.valueOf(exception.getRetryAfter()));
+        return RestBean.failure(503, exception.getMessage());
+    }
+}
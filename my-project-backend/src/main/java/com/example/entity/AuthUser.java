@@ -0,0 +1,53 @@
+package com.example.entity;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 通过Jwt令牌解析得到的已验证用户，同时作为SpringSecurity的验证实体使用
+ * 不可变对象，每个令牌只在首次校验时创建一次，之后随令牌缓存一起复用
+ * @param id 用户ID
+ * @param username 用户名
+ * @param authorities 用户权限列表
+ */
+public record AuthUser(Integer id, String username, List<GrantedAuthority> authorities) implements Authentication {
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public Object getDetails() {
+        return null;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return this;
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return true;
+    }
+
+    @Override
+    public void setAuthenticated(boolean isAuthenticated) throws IllegalArgumentException {
+        if(!isAuthenticated)
+            throw new IllegalArgumentException("AuthUser is immutable and always authenticated");
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
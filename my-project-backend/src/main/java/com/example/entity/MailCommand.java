@@ -0,0 +1,35 @@
+package com.example.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.Map;
+
+/**
+ * 邮件发送指令，作为邮件队列中的消息体以JSON格式传输
+ * 新增字段时保持向后兼容并提升版本号，消费者忽略不认识的字段，便于滚动发布
+ * @param version 消息格式版本
+ * @param type 邮件类型，register、reset或modify
+ * @param email 收件人
+ * @param code 验证码
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record MailCommand(int version, String type, String email, int code) {
+
+    //当前的消息格式版本
+    public static final int CURRENT_VERSION = 1;
+
+    public static MailCommand of(String type, String email, int code) {
+        return new MailCommand(CURRENT_VERSION, type, email, code);
+    }
+
+    /**
+     * 兼容旧版本生产者发送的Map格式消息
+     * @param data 旧格式消息
+     * @return 邮件发送指令
+     */
+    public static MailCommand fromLegacy(Map<?, ?> data) {
+        Object code = data.get("code");
+        return new MailCommand(0, String.valueOf(data.get("type")), String.valueOf(data.get("email")),
+                code instanceof Number number ? number.intValue() : Integer.parseInt(String.valueOf(code)));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.entity.dto;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
@@ -32,6 +33,14 @@ public class Task implements BaseData {
     
     @TableField("parent_id")
     Integer parentId;
+
+    //层级路径，由根任务到当前任务的ID组成，例如 /1/5/23/，只能通过专门的语句修改，按实体更新时忽略
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    String path;
+
+    //层级深度，顶层任务为0
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    Integer depth;
     
     @TableField("start_date")
     Date startDate;
@@ -47,4 +56,8 @@ public class Task implements BaseData {
     
     @TableField("due_date")
     Date dueDate;
+
+    //直接子任务数量，只在查询任务树时填充
+    @TableField(exist = false)
+    Integer childCount;
 }
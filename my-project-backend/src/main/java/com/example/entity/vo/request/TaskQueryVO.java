@@ -0,0 +1,33 @@
+package com.example.entity.vo.request;
+
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 任务列表查询条件VO，所有条件都可以省略
+ */
+@Data
+public class TaskQueryVO {
+    //任务状态，多个状态之间为或关系
+    @Size(max = 4)
+    List<@Pattern(regexp = "(pending|in_progress|completed|cancelled)") String> status;
+    //优先级，多个优先级之间为或关系
+    @Size(max = 4)
+    List<@Pattern(regexp = "(low|medium|high|urgent)") String> priority;
+    //截止日期早于该时间
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    Date dueBefore;
+    //截止日期不早于该时间
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    Date dueAfter;
+    //父任务ID，为0时只查询顶层任务
+    Integer parentId;
+    //排序方式，created 按创建时间倒序，due 按截止日期升序（只包含设置了截止日期的任务）
+    @Pattern(regexp = "(created|due)")
+    String sort = "created";
+}
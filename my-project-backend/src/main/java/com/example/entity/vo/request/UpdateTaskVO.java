@@ -13,6 +13,7 @@ public class UpdateTaskVO {
     String description;
     String status;
     String priority;
+    //新的父任务ID，为0时移动到顶层，为空时不修改
     Integer parentId;
     Date startDate;
     Date endDate;
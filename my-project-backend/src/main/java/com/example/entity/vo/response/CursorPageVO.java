@@ -0,0 +1,39 @@
+package com.example.entity.vo.response;
+
+import com.example.utils.PageCursor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页响应VO
+ * @param list 当前页数据
+ * @param next 下一页的游标，没有下一页时为null
+ * @param <T> 数据类型
+ */
+public record CursorPageVO<T>(List<T> list, String next) {
+
+    /**
+     * 由多查询一条的结果生成分页数据，结果数量超过每页数量说明还有下一页
+     * @param rows 查询结果，最多为每页数量加一条
+     * @param size 每页数量
+     * @param cursor 由数据生成游标的方法
+     * @return 分页数据
+     * @param <T> 数据类型
+     */
+    public static <T> CursorPageVO<T> of(List<T> rows, int size, Function<T, PageCursor> cursor) {
+        if(rows.size() <= size) return new CursorPageVO<>(rows, null);
+        List<T> list = rows.subList(0, size);
+        return new CursorPageVO<>(list, cursor.apply(list.get(size - 1)).encode());
+    }
+
+    /**
+     * 转换当前页中的数据类型，游标保持不变
+     * @param mapper 转换方法
+     * @return 转换后的分页数据
+     * @param <V> 转换后的数据类型
+     */
+    public <V> CursorPageVO<V> map(Function<T, V> mapper) {
+        return new CursorPageVO<>(list.stream().map(mapper).toList(), next);
+    }
+}
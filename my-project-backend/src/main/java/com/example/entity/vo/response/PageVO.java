@@ -0,0 +1,37 @@
+package com.example.entity.vo.response;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 按页码分页的响应VO
+ * @param list 当前页数据
+ * @param page 当前页码，从1开始
+ * @param more 是否还有下一页
+ * @param <T> 数据类型
+ */
+public record PageVO<T>(List<T> list, int page, boolean more) {
+
+    /**
+     * 由多查询一条的结果生成分页数据，结果数量超过每页数量说明还有下一页
+     * @param rows 查询结果，最多为每页数量加一条
+     * @param page 当前页码
+     * @param size 每页数量
+     * @return 分页数据
+     * @param <T> 数据类型
+     */
+    public static <T> PageVO<T> of(List<T> rows, int page, int size) {
+        if(rows.size() <= size) return new PageVO<>(rows, page, false);
+        return new PageVO<>(rows.subList(0, size), page, true);
+    }
+
+    /**
+     * 转换当前页中的数据类型
+     * @param mapper 转换方法
+     * @return 转换后的分页数据
+     * @param <V> 转换后的数据类型
+     */
+    public <V> PageVO<V> map(Function<T, V> mapper) {
+        return new PageVO<>(list.stream().map(mapper).toList(), page, more);
+    }
+}
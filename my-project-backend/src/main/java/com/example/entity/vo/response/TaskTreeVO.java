@@ -0,0 +1,30 @@
+package com.example.entity.vo.response;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 任务树节点响应VO
+ */
+@Data
+public class TaskTreeVO {
+    Integer id;
+    Integer userId;
+    String title;
+    String description;
+    String status;
+    String priority;
+    Integer parentId;
+    Integer depth;
+    Date startDate;
+    Date endDate;
+    Date createdAt;
+    Date updatedAt;
+    Date dueDate;
+    //直接子任务数量，超出查询深度的子任务不会出现在children中，但仍然计入数量
+    Integer childCount;
+    List<TaskTreeVO> children = new ArrayList<>();
+}
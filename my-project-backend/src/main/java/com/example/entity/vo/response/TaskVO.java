@@ -16,6 +16,7 @@ public class TaskVO {
     String status;
     String priority;
     Integer parentId;
+    Integer depth;
     Date startDate;
     Date endDate;
     Date createdAt;
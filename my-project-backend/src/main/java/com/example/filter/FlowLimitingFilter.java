@@ -2,7 +2,11 @@ package com.example.filter;
 
 import com.example.entity.RestBean;
 import com.example.utils.Const;
+import com.example.utils.FlowAlgorithm;
 import com.example.utils.FlowUtils;
+import com.example.utils.HeavyHitterDetector;
+import com.example.utils.LocalQuotaCounter;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -12,23 +16,23 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 限流控制过滤器
  * 防止用户高频请求接口，借助Redis进行限流
+ * 请求次数远超正常水平的IP地址会被高频访问检测直接在本地拦截，IP白名单中的请求不参与限流
  */
 @Slf4j
 @Component
 @Order(Const.ORDER_FLOW_LIMIT)
 public class FlowLimitingFilter extends HttpFilter {
 
-    @Resource
-    StringRedisTemplate template;
     //指定时间内最大请求次数限制
     @Value("${spring.web.flow.limit}")
     int limit;
@@ -38,14 +42,42 @@ public class FlowLimitingFilter extends HttpFilter {
     //超出请求限制封禁时间
     @Value("${spring.web.flow.block}")
     int block;
+    //使用的限流算法
+    @Value("${spring.web.flow.algorithm.filter}")
+    FlowAlgorithm algorithm;
+    //本地配额块大小，为0时每次请求都访问Redis，仅对固定窗口算法生效
+    @Value("${spring.web.flow.local-chunk}")
+    int localChunk;
 
     @Resource
     FlowUtils utils;
 
+    @Resource
+    HeavyHitterDetector detector;
+
+    private LocalQuotaCounter counter;
+
+    @PostConstruct
+    public void init() {
+        if(localChunk > 0 && algorithm == FlowAlgorithm.FIXED_WINDOW)
+            this.counter = new LocalQuotaCounter(localChunk, (address, amount) -> utils.borrowQuota(
+                    Const.FLOW_LIMIT_COUNTER + address, Const.FLOW_LIMIT_BLOCK + address, amount, block, limit, period));
+    }
+
+    /**
+     * 定期清理本地已过期的配额
+     */
+    @Scheduled(fixedDelayString = "${spring.web.flow.period}", timeUnit = TimeUnit.SECONDS)
+    public void purgeLocalQuota() {
+        if(counter != null) counter.purge();
+    }
+
     @Override
     protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
         String address = request.getRemoteAddr();
-        if ("OPTIONS".equals(request.getMethod()) && !tryCount(address))
+        if (!"OPTIONS".equals(request.getMethod())
+                && request.getAttribute(Const.ATTR_IP_ALLOWED) == null
+                && (!detector.recordAddress(address) || !tryCount(address)))
             this.writeBlockMessage(response);
         else
             chain.doFilter(request, response);
@@ -53,17 +85,16 @@ public class FlowLimitingFilter extends HttpFilter {
 
     /**
      * 尝试对指定IP地址请求计数，如果被限制则无法继续访问
+     * 启用本地配额时优先消耗本地借到的配额
      * @param address 请求IP地址
      * @return 是否操作成功
      */
     private boolean tryCount(String address) {
-        synchronized (address.intern()) {
-            if(Boolean.TRUE.equals(template.hasKey(Const.FLOW_LIMIT_BLOCK + address)))
-                return false;
-            String counterKey = Const.FLOW_LIMIT_COUNTER + address;
-            String blockKey = Const.FLOW_LIMIT_BLOCK + address;
-            return utils.limitPeriodCheck(counterKey, blockKey, block, limit, period);
-        }
+        if(counter != null)
+            return counter.tryAcquire(address);
+        String counterKey = Const.FLOW_LIMIT_COUNTER + address;
+        String blockKey = Const.FLOW_LIMIT_BLOCK + address;
+        return utils.limitCheck(algorithm, counterKey, blockKey, block, limit, period);
     }
 
     /**
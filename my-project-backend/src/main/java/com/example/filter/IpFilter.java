@@ -0,0 +1,85 @@
+package com.example.filter;
+
+import com.example.entity.RestBean;
+import com.example.utils.Const;
+import com.example.utils.IpAccessList;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IP地址黑白名单过滤器，位于所有过滤器之前
+ * 命中黑名单的请求直接拒绝，不会触发任何Redis访问；命中白名单的请求跳过限流
+ * 名单从本地文件加载，文件修改后定期重新加载并整体替换，替换过程不影响正在处理的请求
+ */
+@Slf4j
+@Component
+@Order(Const.ORDER_IP_FILTER)
+public class IpFilter extends HttpFilter {
+
+    //名单文件路径，为空则不启用
+    @Value("${spring.web.ip-filter.file}")
+    String file;
+
+    private volatile IpAccessList accessList = IpAccessList.EMPTY;
+    //已加载名单文件的修改时间
+    private volatile long loadedModified = -1;
+
+    @PostConstruct
+    public void init() {
+        this.reload();
+    }
+
+    /**
+     * 定期检查名单文件是否修改，修改后重新加载，解析失败时继续使用原有名单
+     */
+    @Scheduled(fixedDelayString = "${spring.web.ip-filter.reload}", timeUnit = TimeUnit.SECONDS)
+    public void reload() {
+        if(file == null || file.isBlank()) return;
+        Path path = Path.of(file);
+        try {
+            if(!Files.exists(path)) {
+                if(loadedModified != 0) log.warn("IP黑白名单文件 {} 不存在", path);
+                this.accessList = IpAccessList.EMPTY;
+                this.loadedModified = 0;
+                return;
+            }
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if(modified == loadedModified) return;
+            IpAccessList list = IpAccessList.parse(Files.readAllLines(path, StandardCharsets.UTF_8));
+            this.accessList = list;
+            this.loadedModified = modified;
+            log.info("已加载IP黑白名单 {}，共 {} 条网段", path, list.size());
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("加载IP黑白名单 {} 失败，继续使用原有名单: {}", path, e.getMessage());
+        }
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+        IpAccessList.Rule rule = accessList.match(request.getRemoteAddr());
+        if(rule == IpAccessList.Rule.DENY) {
+            response.setStatus(403);
+            response.setContentType("application/json;charset=utf-8");
+            response.getWriter().write(RestBean.forbidden("当前IP地址禁止访问").asJsonString());
+            return;
+        }
+        if(rule == IpAccessList.Rule.ALLOW)
+            request.setAttribute(Const.ATTR_IP_ALLOWED, Boolean.TRUE);
+        chain.doFilter(request, response);
+    }
+}
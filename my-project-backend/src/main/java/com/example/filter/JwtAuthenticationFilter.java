@@ -1,6 +1,6 @@
 package com.example.filter;
 
-import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.entity.AuthUser;
 import com.example.utils.Const;
 import com.example.utils.JwtUtils;
 import jakarta.annotation.Resource;
@@ -8,10 +8,7 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -20,6 +17,7 @@ import java.io.IOException;
 /**
  * 用于对请求头中Jwt令牌进行校验的工具，为当前请求添加用户验证信息
  * 并将用户的ID存放在请求对象属性中，方便后续使用
+ * 验证实体随令牌缓存复用，请求热路径上不再额外创建对象
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -32,14 +30,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         String authorization = request.getHeader("Authorization");
-        DecodedJWT jwt = utils.resolveJwt(authorization);
-        if(jwt != null) {
-            UserDetails user = utils.toUser(jwt);
-            UsernamePasswordAuthenticationToken authentication =
-                    new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
-            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            request.setAttribute(Const.ATTR_USER_ID, utils.toId(jwt));
+        AuthUser user = utils.resolveJwt(authorization);
+        if(user != null) {
+            SecurityContextHolder.getContext().setAuthentication(user);
+            request.setAttribute(Const.ATTR_USER_ID, user.id());
         }
         filterChain.doFilter(request, response);
     }
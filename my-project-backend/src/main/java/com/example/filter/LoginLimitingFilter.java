@@ -0,0 +1,111 @@
+package com.example.filter;
+
+import com.example.entity.RestBean;
+import com.example.utils.Const;
+import com.example.utils.FlowUtils;
+import jakarta.annotation.Resource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * 登录请求限流过滤器，位于SpringSecurity表单登录之前
+ * 每个IP地址的登录请求都会计数，用户名只统计登录失败的次数，由登录失败处理调用 {@link #recordFailure} 计数，
+ * 这里只检查封禁状态，超出限制的请求在查询账户和校验密码之前就被拒绝，避免撞库流量消耗大量BCrypt计算资源
+ * 用户名的失败次数按用户名与IP地址分别统计，另有一个宽松得多的全局上限，
+ * 知道用户名的人只能封禁自己的IP，无法用少量请求让账户一直无法登录
+ */
+@Component
+public class LoginLimitingFilter extends OncePerRequestFilter {
+
+    @Resource
+    FlowUtils utils;
+
+    //单个IP地址在计数周期内最多尝试登录次数
+    @Value("${spring.security.login.ip-limit}")
+    int ipLimit;
+    //同一IP地址对单个用户名在计数周期内最多登录失败次数
+    @Value("${spring.security.login.user-limit}")
+    int userLimit;
+    //所有IP地址对单个用户名在计数周期内最多登录失败次数，只用于限制分布式的密码猜测
+    @Value("${spring.security.login.user-global-limit}")
+    int userGlobalLimit;
+    //计数周期
+    @Value("${spring.security.login.period}")
+    int period;
+    //超出限制封禁时间
+    @Value("${spring.security.login.block}")
+    int block;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !("POST".equals(request.getMethod()) && "/api/auth/login".equals(request.getServletPath()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String username = request.getParameter("username");
+        if(!this.tryCount(Const.LOGIN_LIMIT_IP + request.getRemoteAddr(), ipLimit)
+                || (username != null && this.isUserBlocked(username, request.getRemoteAddr()))) {
+            this.writeBlockMessage(response);
+        } else {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * 记录一次用户名或密码错误导致的登录失败，超出限制后封禁对应的用户名
+     * @param request 登录请求
+     */
+    public void recordFailure(HttpServletRequest request) {
+        String username = request.getParameter("username");
+        if(username == null) return;
+        String name = username.toLowerCase(Locale.ROOT);
+        this.tryCount(Const.LOGIN_LIMIT_USER + name + ":" + request.getRemoteAddr(), userLimit);
+        this.tryCount(Const.LOGIN_LIMIT_USER + name, userGlobalLimit);
+    }
+
+    /**
+     * 检查用户名是否因登录失败次数过多而被封禁，只读取封禁键，不计数
+     * @param username 用户名
+     * @param address IP地址
+     * @return 是否已被封禁
+     */
+    private boolean isUserBlocked(String username, String address) {
+        String name = username.toLowerCase(Locale.ROOT);
+        return utils.isBlocked(Const.FLOW_LIMIT_BLOCK + Const.LOGIN_LIMIT_USER + name + ":" + address)
+                || utils.isBlocked(Const.FLOW_LIMIT_BLOCK + Const.LOGIN_LIMIT_USER + name);
+    }
+
+    /**
+     * 尝试对登录请求计数，复用通用限流的计数键与封禁键
+     * @param key 计数对象
+     * @param limit 计数周期内最大请求次数
+     * @return 是否通过限流检查
+     */
+    private boolean tryCount(String key, int limit) {
+        return utils.limitPeriodCheck(Const.FLOW_LIMIT_COUNTER + key, Const.FLOW_LIMIT_BLOCK + key, block, limit, period);
+    }
+
+    /**
+     * 为响应编写拦截内容，提示用户登录尝试过于频繁
+     * @param response 响应
+     * @throws IOException 可能的异常
+     */
+    private void writeBlockMessage(HttpServletResponse response) throws IOException {
+        response.setStatus(429);
+        response.setContentType("application/json;charset=utf-8");
+        PrintWriter writer = response.getWriter();
+        writer.write(RestBean.failure(429, "登录尝试过于频繁，请稍后再试").asJsonString());
+    }
+}
@@ -1,7 +1,7 @@
 package com.example.filter;
 
 import com.alibaba.fastjson2.JSONObject;
-import com.example.utils.Const;
+import com.example.entity.AuthUser;
 import com.example.utils.SnowflakeIdGenerator;
 import jakarta.annotation.Resource;
 import jakarta.servlet.FilterChain;
@@ -11,7 +11,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.util.ContentCachingResponseWrapper;
@@ -79,12 +78,10 @@ public class RequestLogFilter extends OncePerRequestFilter {
         MDC.put("reqId", String.valueOf(reqId));
         JSONObject object = new JSONObject();
         request.getParameterMap().forEach((k, v) -> object.put(k, v.length > 0 ? v[0] : null));
-        Object id = request.getAttribute(Const.ATTR_USER_ID);
-        if(id != null) {
-            User user = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if(SecurityContextHolder.getContext().getAuthentication() instanceof AuthUser user) {
             log.info("请求URL: \"{}\" ({}) | 远程IP地址: {} │ 身份: {} (UID: {}) | 角色: {} | 请求参数列表: {}",
                     request.getServletPath(), request.getMethod(), request.getRemoteAddr(),
-                    user.getUsername(), id, user.getAuthorities(), object);
+                    user.username(), user.id(), user.authorities(), object);
         } else {
             log.info("请求URL: \"{}\" ({}) | 远程IP地址: {} │ 身份: 未验证 | 请求参数列表: {}",
                     request.getServletPath(), request.getMethod(), request.getRemoteAddr(), object);
@@ -0,0 +1,99 @@
+package com.example.interceptor;
+
+import com.example.annotation.FlowLimit;
+import com.example.entity.RestBean;
+import com.example.utils.Const;
+import com.example.utils.FlowUtils;
+import com.example.utils.HeavyHitterDetector;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 接口级别限流拦截器
+ * 启动时将所有标注了 {@link FlowLimit} 的接口预先整理成路由表，请求时只需一次哈希查找即可得到限流策略
+ */
+@Slf4j
+@Component
+public class FlowLimitInterceptor implements HandlerInterceptor {
+
+    @Resource
+    FlowUtils utils;
+
+    @Resource
+    HeavyHitterDetector detector;
+
+    //接口方法 -> 限流策略，启动完成后整体替换，之后只读
+    private volatile Map<Method, Policy> routes = Map.of();
+
+    /**
+     * 容器启动完成后扫描所有接口，生成路由表
+     * @param event 容器刷新事件
+     */
+    @EventListener
+    public void buildRoutes(ContextRefreshedEvent event) {
+        if(!event.getApplicationContext().containsBean("requestMappingHandlerMapping")) return;
+        RequestMappingHandlerMapping mapping = event.getApplicationContext()
+                .getBean("requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+        Map<Method, Policy> table = new HashMap<>();
+        mapping.getHandlerMethods().values().forEach(handler -> {
+            FlowLimit limit = AnnotatedElementUtils.findMergedAnnotation(handler.getMethod(), FlowLimit.class);
+            if(limit == null) return;
+            String name = handler.getBeanType().getSimpleName() + "#" + handler.getMethod().getName();
+            table.put(handler.getMethod(), new Policy(name, limit));
+        });
+        this.routes = Map.copyOf(table);
+        log.info("已加载 {} 个接口限流策略", table.size());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if(!(handler instanceof HandlerMethod method)) return true;
+        Policy policy = routes.get(method.getMethod());
+        if(this.recordUser(request) && (policy == null || this.tryCount(policy, request))) return true;
+        response.setStatus(429);
+        response.setContentType("application/json;charset=utf-8");
+        response.getWriter().write(RestBean.failure(429, "请求频率过快，请稍后再试").asJsonString());
+        return false;
+    }
+
+    /**
+     * 已登录的请求交给高频访问检测按用户ID统计
+     * @param request 请求
+     * @return 是否允许继续访问
+     */
+    private boolean recordUser(HttpServletRequest request) {
+        return !(request.getAttribute(Const.ATTR_USER_ID) instanceof Integer id) || detector.recordUser(id);
+    }
+
+    /**
+     * 按接口策略计数，已登录按用户ID区分，否则按IP地址区分
+     * @param policy 限流策略
+     * @param request 请求
+     * @return 是否通过限流检查
+     */
+    private boolean tryCount(Policy policy, HttpServletRequest request) {
+        Object id = request.getAttribute(Const.ATTR_USER_ID);
+        String subject = id != null ? "user:" + id : "ip:" + request.getRemoteAddr();
+        String key = Const.FLOW_LIMIT_ROUTE + policy.name() + ":" + subject;
+        FlowLimit limit = policy.limit();
+        return utils.limitCheck(limit.algorithm(), Const.FLOW_LIMIT_COUNTER + key,
+                limit.block() > 0 ? Const.FLOW_LIMIT_BLOCK + key : null,
+                limit.block(), limit.limit(), limit.period());
+    }
+
+    private record Policy(String name, FlowLimit limit) {}
+}
@@ -1,20 +1,38 @@
 package com.example.listener;
 
+import com.example.entity.MailCommand;
+import com.example.utils.Const;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
-import org.springframework.amqp.rabbit.annotation.RabbitHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 用于处理邮件发送的消息队列监听器
+ * 按批次消费邮件队列，同一批次的邮件复用同一个SMTP连接发送，每条消息单独确认
+ * 发送失败的邮件按指数退避重试，多次失败后转入死信队列
  */
+@Slf4j
 @Component
-@RabbitListener(queues = "mail")
 public class MailQueueListener {
 
     @Resource
@@ -23,15 +41,183 @@ public class MailQueueListener {
     @Value("${spring.mail.username}")
     String username;
 
+    @Resource
+    AmqpTemplate rabbitTemplate;
+
+    @Resource
+    MeterRegistry registry;
+
+    @Resource
+    StringRedisTemplate template;
+
+    //邮件最大尝试发送次数，包含首次发送
+    @Value("${spring.web.mail.retry.max-attempts}")
+    int maxAttempts;
+
+    @Resource
+    MessageConverter converter;
+
+    private Timer lag;
+
+    @PostConstruct
+    public void init() {
+        this.lag = Timer.builder("mail.consumer.lag")
+                .description("邮件消息从投递到开始发送的等待时间")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+
+    /**
+     * 批量处理邮件发送，每条消息单独确认
+     * 发送失败的消息转入下一级重试队列，超过最大尝试次数或无法解析的消息转入死信队列，
+     * 转出后确认原消息，失败的邮件不会阻塞队列中后续的验证码邮件
+     * @param messages 同一批次的消息
+     * @param channel 消息通道
+     * @throws IOException 确认消息时可能的异常
+     */
+    @RabbitListener(queues = Const.MQ_MAIL, containerFactory = "mailContainerFactory")
+    public void sendMailMessages(List<Message> messages, Channel channel) throws IOException {
+        Map<SimpleMailMessage, Delivery> pending = new IdentityHashMap<>();
+        for (Message message : messages) {
+            this.recordLag(message);
+            MailCommand command;
+            try {
+                command = this.convertMessage(message);
+            } catch (RuntimeException e) {
+                log.error("无法解析的邮件消息，已转入死信队列: {}", e.getMessage());
+                this.settle(channel, message, () -> this.deadLetter(message));
+                continue;
+            }
+            SimpleMailMessage mail = this.createMail(command);
+            if(mail == null) {
+                this.clearPending(command);
+                channel.basicAck(this.tag(message), false);
+            } else {
+                pending.put(mail, new Delivery(message, command));
+            }
+        }
+        if(pending.isEmpty()) return;
+        Set<Object> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            sender.send(pending.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            if(e.getFailedMessages().isEmpty()) {
+                //没有失败的邮件说明全部已经发出，只是之后关闭SMTP连接失败，不能重发，否则用户会收到重复的验证码
+                log.warn("邮件已全部发出，但关闭SMTP连接失败，共 {} 封: {}", pending.size(), e.getMessage());
+            } else {
+                failed.addAll(e.getFailedMessages().keySet());
+                log.warn("邮件批量发送部分失败，失败 {} 封，共 {} 封: {}", failed.size(), pending.size(), e.getMessage());
+            }
+        } catch (MailException e) {
+            failed.addAll(pending.keySet());
+            log.warn("邮件批量发送失败，共 {} 封: {}", pending.size(), e.getMessage());
+        }
+        for (Map.Entry<SimpleMailMessage, Delivery> entry : pending.entrySet()) {
+            Delivery delivery = entry.getValue();
+            if(failed.contains(entry.getKey())) {
+                this.settle(channel, delivery.message(), () -> this.retry(delivery));
+            } else {
+                this.clearPending(delivery.command());
+                channel.basicAck(this.tag(delivery.message()), false);
+            }
+        }
+    }
+
     /**
-     * 处理邮件发送
-     * @param data 邮件信息
+     * 将消息转发到重试或死信队列后确认原消息，转发失败（如消息队列不可用）时拒绝原消息并放回队列
+     * 容器使用手动确认模式，抛出异常不会自动拒绝消息，因此每条消息都必须在这里得到确认或拒绝，
+     * 否则未确认的消息会一直占用预取额度直到通道关闭
+     * @param channel 消息通道
+     * @param message 原消息
+     * @param republish 转发操作
+     * @throws IOException 确认或拒绝消息时可能的异常
      */
-    @RabbitHandler
-    public void sendMailMessage(Map<String, Object> data) {
-        String email = data.get("email").toString();
-        Integer code = (Integer) data.get("code");
-        SimpleMailMessage message = switch (data.get("type").toString()) {
+    private void settle(Channel channel, Message message, Runnable republish) throws IOException {
+        long tag = this.tag(message);
+        try {
+            republish.run();
+        } catch (RuntimeException e) {
+            log.error("邮件消息转发失败，已放回队列等待重新投递: {}", e.getMessage());
+            channel.basicNack(tag, false, true);
+            return;
+        }
+        channel.basicAck(tag, false);
+    }
+
+    /**
+     * 将发送失败的消息转入下一级重试队列，已达到最大尝试次数则转入死信队列
+     * @param delivery 发送失败的消息
+     */
+    private void retry(Delivery delivery) {
+        Message message = delivery.message();
+        MessageProperties properties = message.getMessageProperties();
+        Integer retried = properties.getHeader(Const.MQ_HEADER_RETRY);
+        int attempt = retried == null ? 1 : retried + 1;
+        if(attempt >= maxAttempts) {
+            log.error("邮件已尝试发送 {} 次仍然失败，转入死信队列", attempt);
+            this.deadLetter(message);
+            this.clearPending(delivery.command());
+            return;
+        }
+        properties.setHeader(Const.MQ_HEADER_RETRY, attempt);
+        rabbitTemplate.send("", Const.MQ_MAIL_RETRY + attempt, message);
+    }
+
+    private void deadLetter(Message message) {
+        rabbitTemplate.send(Const.MQ_MAIL_DLX, Const.MQ_MAIL, message);
+    }
+
+    /**
+     * 邮件已发出或放弃发送后清除等待标记，之后同一邮箱可以再次请求验证码
+     * @param command 邮件发送指令
+     */
+    private void clearPending(MailCommand command) {
+        try {
+            template.delete(Const.VERIFY_EMAIL_PENDING + command.type() + ":" + command.email());
+        } catch (RuntimeException e) {
+            //等待标记自带过期时间，清除失败只会让该邮箱稍晚才能再次请求，不影响消息确认
+            log.warn("清除验证码邮件等待标记失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录消息从投递到被消费的等待时间，重试的消息不计入
+     * @param message 消息
+     */
+    private void recordLag(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        Date timestamp = properties.getTimestamp();
+        if(timestamp == null || properties.getHeader(Const.MQ_HEADER_RETRY) != null) return;
+        lag.record(Math.max(System.currentTimeMillis() - timestamp.getTime(), 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 将消息转换为邮件发送指令，同时兼容旧版本生产者发送的Map格式消息
+     * @param message 消息
+     * @return 邮件发送指令
+     */
+    private MailCommand convertMessage(Message message) {
+        Object payload = converter.fromMessage(message);
+        MailCommand command;
+        if(payload instanceof MailCommand mail) {
+            command = mail;
+        } else if(payload instanceof Map<?, ?> data) {
+            command = MailCommand.fromLegacy(data);
+        } else {
+            throw new MessageConversionException("未知的邮件消息格式");
+        }
+        return command;
+    }
+
+    /**
+     * 根据邮件发送指令生成邮件
+     * @param command 邮件发送指令
+     * @return 邮件实体，未知的邮件类型为null
+     */
+    private SimpleMailMessage createMail(MailCommand command) {
+        String email = command.email();
+        int code = command.code();
+        return switch (command.type()) {
             case "register" ->
                     createMessage("欢迎注册我们的网站",
                             "您的邮件注册验证码为: "+code+"，有效时间3分钟，为了保障您的账户安全，请勿向他人泄露验证码信息。",
@@ -46,10 +232,19 @@ public class MailQueueListener {
                             email);
             default -> null;
         };
-        if(message == null) return;
-        sender.send(message);
     }
 
+    private long tag(Message message) {
+        return message.getMessageProperties().getDeliveryTag();
+    }
+
+    /**
+     * 等待发送的消息以及对应的邮件发送指令
+     * @param message 消息
+     * @param command 邮件发送指令
+     */
+    private record Delivery(Message message, MailCommand command) {}
+
     /**
      * 快速封装简单邮件消息实体
      * @param title 标题
@@ -3,10 +3,73 @@ package com.example.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.entity.dto.Task;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 /**
  * 任务Mapper接口
  */
 @Mapper
 public interface TaskMapper extends BaseMapper<Task> {
+
+    /**
+     * 按层级路径前缀查询任务树，同时统计每个任务的直接子任务数量
+     * @param userId 用户ID
+     * @param path 子树根任务的层级路径，为空时查询全部任务
+     * @param maxDepth 最大层级深度，为空时不限制
+     * @return 按层级深度排序的任务，同层按创建时间倒序
+     */
+    @Select("""
+            <script>
+            SELECT t.*, (SELECT COUNT(*) FROM task c WHERE c.parent_id = t.id) AS child_count
+            FROM task t
+            WHERE t.user_id = #{userId}
+            <if test="path != null"> AND t.path LIKE CONCAT(#{path}, '%')</if>
+            <if test="maxDepth != null"> AND t.depth &lt;= #{maxDepth}</if>
+            ORDER BY t.depth, t.created_at DESC
+            </script>
+            """)
+    List<Task> selectTree(@Param("userId") int userId, @Param("path") String path, @Param("maxDepth") Integer maxDepth);
+
+    /**
+     * 通过全文索引搜索任务标题与描述，按相关度倒序排列
+     * @param userId 用户ID
+     * @param query 布尔模式的全文检索表达式
+     * @param offset 跳过的结果数量
+     * @param limit 返回的结果数量
+     * @return 命中的任务
+     */
+    @Select("""
+            SELECT * FROM task
+            WHERE user_id = #{userId} AND MATCH(title, description) AGAINST(#{query} IN BOOLEAN MODE)
+            ORDER BY MATCH(title, description) AGAINST(#{query} IN BOOLEAN MODE) DESC, id DESC
+            LIMIT #{offset}, #{limit}
+            """)
+    List<Task> search(@Param("userId") int userId, @Param("query") String query,
+                      @Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * 将整棵子树移动到新的层级路径下，一条语句更新子树中所有任务的路径与深度，
+     * 同时修改子树根任务的父任务，子任务的更新时间保持不变
+     * @param userId 用户ID
+     * @param id 子树根任务ID
+     * @param parentId 新的父任务ID，为空表示移动到顶层
+     * @param oldPath 子树根任务原来的层级路径
+     * @param newPath 子树根任务新的层级路径
+     * @param delta 层级深度的变化量
+     * @return 更新的任务数量
+     */
+    @Update("""
+            UPDATE task
+            SET path = CONCAT(#{newPath}, SUBSTRING(path, CHAR_LENGTH(#{oldPath}) + 1)),
+                depth = depth + #{delta},
+                parent_id = IF(id = #{id}, #{parentId,jdbcType=INTEGER}, parent_id),
+                updated_at = IF(id = #{id}, CURRENT_TIMESTAMP, updated_at)
+            WHERE user_id = #{userId} AND path LIKE CONCAT(#{oldPath}, '%')
+            """)
+    int moveSubtree(@Param("userId") int userId, @Param("id") int id, @Param("parentId") Integer parentId,
+                    @Param("oldPath") String oldPath, @Param("newPath") String newPath, @Param("delta") int delta);
 }
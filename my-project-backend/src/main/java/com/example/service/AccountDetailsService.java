@@ -8,5 +8,5 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 public interface AccountDetailsService extends IService<AccountDetails> {
     AccountDetails findAccountDetailsById(int id);
 
-    boolean saveAccountDetails(int id, DetailsSaveVo detailsSaveVo);
+    String saveAccountDetails(int id, DetailsSaveVo detailsSaveVo);
 }
@@ -6,9 +6,10 @@ import com.example.entity.vo.request.ConfirmResetVO;
 import com.example.entity.vo.request.EmailRegisterVO;
 import com.example.entity.vo.request.EmailResetVO;
 import com.example.entity.vo.request.ModifyEmailVo;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
-public interface AccountService extends IService<Account>, UserDetailsService {
+public interface AccountService extends IService<Account>, UserDetailsService, UserDetailsPasswordService {
     Account findAccountByNameOrEmail(String text);
     Account findAccountById(int id);
     String registerEmailVerifyCode(String type, String email, String address);
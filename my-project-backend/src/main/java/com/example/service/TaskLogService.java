@@ -2,8 +2,8 @@ package com.example.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.example.entity.dto.TaskLog;
+import com.example.entity.vo.response.CursorPageVO;
 
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,14 +16,18 @@ public interface TaskLogService extends IService<TaskLog> {
     void createLog(int taskId, int userId, String action, String description);
     
     /**
-     * 获取任务日志
+     * 按创建时间倒序分页获取任务日志
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param size 每页数量
      */
-    List<TaskLog> getTaskLogs(int taskId);
+    CursorPageVO<TaskLog> getTaskLogs(int userId, int taskId, String cursor, int size);
     
     /**
-     * 获取用户所有日志
+     * 按创建时间倒序分页获取用户日志
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param size 每页数量
      */
-    List<TaskLog> getUserLogs(int userId);
+    CursorPageVO<TaskLog> getUserLogs(int userId, String cursor, int size);
     
     /**
      * 获取统计信息
@@ -3,7 +3,11 @@ package com.example.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.example.entity.dto.Task;
 import com.example.entity.vo.request.CreateTaskVO;
+import com.example.entity.vo.request.TaskQueryVO;
 import com.example.entity.vo.request.UpdateTaskVO;
+import com.example.entity.vo.response.CursorPageVO;
+import com.example.entity.vo.response.PageVO;
+import com.example.entity.vo.response.TaskTreeVO;
 
 import java.util.List;
 
@@ -27,15 +31,34 @@ public interface TaskService extends IService<Task> {
     String deleteTask(int userId, int taskId);
     
     /**
-     * 获取所有任务
+     * 按查询条件筛选并分页获取任务
+     * @param query 筛选与排序条件
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param size 每页数量
      */
-    List<Task> getAllTasks(int userId);
+    CursorPageVO<Task> getTaskPage(int userId, TaskQueryVO query, String cursor, int size);
     
     /**
      * 根据ID获取任务
      */
     Task getTaskById(int userId, int taskId);
     
+    /**
+     * 按关键词搜索任务标题与描述，结果按相关度排序
+     * @param keyword 关键词，多个关键词以空白分隔，需要全部命中
+     * @param page 页码，从1开始
+     * @param size 每页数量
+     */
+    PageVO<Task> searchTasks(int userId, String keyword, int page, int size);
+
+    /**
+     * 获取任务树，整棵树通过一次查询得到
+     * @param rootId 子树根任务ID，为空时返回全部顶层任务组成的森林
+     * @param depth 相对根任务的最大层级深度，为空时不限制
+     * @return 顶层节点列表，根任务不存在或其层级路径异常时为null
+     */
+    List<TaskTreeVO> getTaskTree(int userId, Integer rootId, Integer depth);
+
     /**
      * 获取子任务
      */
@@ -6,37 +6,58 @@ import com.example.entity.vo.request.DetailsSaveVo;
 import com.example.mapper.AccountDetailsMapper;
 import com.example.service.AccountDetailsService;
 import com.example.service.AccountService;
+import com.example.utils.AccountCache;
+import com.example.utils.Const;
+import com.example.utils.LockUtils;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Locale;
+
 @Service
 public class AccountDetailsServiceImpl extends ServiceImpl<AccountDetailsMapper, AccountDetails> implements AccountDetailsService {
 
     @Resource
     AccountService service;
 
+    @Resource
+    AccountCache cache;
+
+    @Resource
+    LockUtils lock;
+
     @Override
     public AccountDetails findAccountDetailsById(int id) {
         return this.getById(id);
     }
 
+    /**
+     * 保存用户详细信息，修改用户名时在所有节点内按新用户名加租约锁，防止两个用户同时改成同一个用户名
+     * 租约被占用说明有其他请求正在修改为同一个用户名，此时返回繁忙提示而不是用户名已被占用
+     * @param id 用户ID
+     * @param detailsSaveVo 详细信息
+     * @return 操作结果，null表示正常，否则为错误原因
+     */
     @Override
     @Transactional
-    public synchronized boolean saveAccountDetails(int id, DetailsSaveVo detailsSaveVo) {
-        Account account = service.findAccountByNameOrEmail(detailsSaveVo.getUsername());
-        if (account == null || account.getId() == id) {
-            if(service.update()
+    public String saveAccountDetails(int id, DetailsSaveVo detailsSaveVo) {
+        String username = detailsSaveVo.getUsername();
+        return lock.executeLeased(Const.LOCK_ACCOUNT_NAME + username.toLowerCase(Locale.ROOT), () -> {
+            Account account = service.findAccountByNameOrEmail(username);
+            if (account != null && account.getId() != id)
+                return "此用户名已被其他用户注册，请重新更换";
+            if(!service.update()
                     .eq("id", id)
-                    .set("username", detailsSaveVo.getUsername())
-                    .update()) {
-                this.saveOrUpdate(new AccountDetails(
-                        id, detailsSaveVo.getGender(), detailsSaveVo.getPhone(),
-                        detailsSaveVo.getQq(), detailsSaveVo.getWx(), detailsSaveVo.getDesc()
-                ));
-                return true;
-            }
-        }
-        return false;
+                    .set("username", username)
+                    .update())
+                return "保存失败，请联系管理员";
+            cache.evict(id);
+            this.saveOrUpdate(new AccountDetails(
+                    id, detailsSaveVo.getGender(), detailsSaveVo.getPhone(),
+                    detailsSaveVo.getQq(), detailsSaveVo.getWx(), detailsSaveVo.getDesc()
+            ));
+            return null;
+        }, () -> "该用户名正在被其他用户使用，请稍后再试");
     }
 }
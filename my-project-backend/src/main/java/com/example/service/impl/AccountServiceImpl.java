@@ -2,6 +2,7 @@ package com.example.service.impl;
 
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.example.entity.MailCommand;
 import com.example.entity.dto.Account;
 import com.example.entity.vo.request.ConfirmResetVO;
 import com.example.entity.vo.request.EmailRegisterVO;
@@ -9,10 +10,16 @@ import com.example.entity.vo.request.EmailResetVO;
 import com.example.entity.vo.request.ModifyEmailVo;
 import com.example.mapper.AccountMapper;
 import com.example.service.AccountService;
+import com.example.utils.AccountCache;
 import com.example.utils.Const;
+import com.example.utils.FlowAlgorithm;
 import com.example.utils.FlowUtils;
+import com.example.utils.JwtUtils;
+import com.example.utils.LockUtils;
+import com.example.utils.MailQueueMonitor;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.core.AmqpTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -23,7 +30,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
-import java.util.Map;
+import java.util.List;
 import java.util.Objects;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +44,9 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
     //验证邮件发送冷却时间限制，秒为单位
     @Value("${spring.web.verify.mail-limit}")
     int verifyLimit;
+    //验证邮件发送使用的限流算法
+    @Value("${spring.web.flow.algorithm.mail}")
+    FlowAlgorithm verifyAlgorithm;
 
     @Resource
     AmqpTemplate rabbitTemplate;
@@ -50,15 +60,30 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
     @Resource
     FlowUtils flow;
 
+    @Resource
+    LockUtils lock;
+
+    @Resource
+    MailQueueMonitor mailMonitor;
+
+    @Resource
+    JwtUtils jwtUtils;
+
+    @Resource
+    AccountCache cache;
+
     /**
-     * 从数据库中通过用户名或邮箱查找用户详细信息
+     * 从数据库中通过用户名或邮箱查找用户详细信息，缓存中的账户不包含密码，因此这里始终直接查询数据库
      * @param username 用户名
      * @return 用户详细信息
      * @throws UsernameNotFoundException 如果用户未找到则抛出此异常
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Account account = this.findAccountByNameOrEmail(username);
+        Account account = this.query()
+                .eq("username", username).or()
+                .eq("email", username)
+                .one();
         if(account == null)
             throw new UsernameNotFoundException("用户名或密码错误");
         return User
@@ -68,27 +93,60 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
                 .build();
     }
 
+    /**
+     * 登录成功后，如果数据库中的密码使用了过时的算法或强度，则在密码哈希线程中异步调用此方法
+     * 将重新编码后的密码写回数据库，用户无需任何操作即可完成密码升级
+     * @param user 已验证的用户
+     * @param newPassword 重新编码后的密码
+     * @return 更新密码后的用户
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        Account account = this.findAccountByNameOrEmail(user.getUsername());
+        if(account != null && this.update()
+                .eq("id", account.getId())
+                .set("password", newPassword)
+                .update()) {
+            cache.evict(account.getId());
+        }
+        return User.withUserDetails(user).password(newPassword).build();
+    }
+
     /**
      * 生成注册验证码存入Redis中，并将邮件发送请求提交到消息队列等待发送
+     * 同一邮箱的发送与存储在本地按邮箱加锁，保证最后存入的验证码与最后发出的邮件一致
+     * 邮件队列饱和时直接拒绝；同一邮箱同一类型已有邮件等待发送时不再重复发送，沿用等待中的验证码
      * @param type 类型
      * @param email 邮件地址
      * @param address 请求IP地址
      * @return 操作结果，null表示正常，否则为错误原因
      */
     public String registerEmailVerifyCode(String type, String email, String address){
+        mailMonitor.checkSaturation();
         if (this.existsAccountByEmail(email) && Objects.equals(type, "register")) return "此电子邮件已被其他用户注册";
         if (!this.existsAccountByEmail(email) && Objects.equals(type, "reset")) return "此电子邮件还未注册";
-        synchronized (address.intern()) {
-            if(!this.verifyLimit(address))
-                return "请求频繁，请稍后再试";
+        if(!this.verifyLimit(address))
+            return "请求频繁，请稍后再试";
+        return lock.executeLocal(email, () -> {
+            String pendingKey = Const.VERIFY_EMAIL_PENDING + type + ":" + email;
+            Boolean first = stringRedisTemplate.opsForValue().setIfAbsent(pendingKey, "", 3, TimeUnit.MINUTES);
+            if(!Boolean.TRUE.equals(first)) return null;
             Random random = new Random();
             int code = random.nextInt(899999) + 100000;
-            Map<String, Object> data = Map.of("type",type,"email", email, "code", code);
-            rabbitTemplate.convertAndSend(Const.MQ_MAIL, data);
-            stringRedisTemplate.opsForValue()
-                    .set(Const.VERIFY_EMAIL_DATA + email, String.valueOf(code), 3, TimeUnit.MINUTES);
+            //先保存验证码再投递邮件，避免邮件先于验证码到达时用户提交的验证码被判定为不存在
+            String codeKey = Const.VERIFY_EMAIL_DATA + email;
+            stringRedisTemplate.opsForValue().set(codeKey, String.valueOf(code), 3, TimeUnit.MINUTES);
+            try {
+                rabbitTemplate.convertAndSend(Const.MQ_MAIL, MailCommand.of(type, email, code), message -> {
+                    message.getMessageProperties().setTimestamp(new Date());
+                    return message;
+                });
+            } catch (AmqpException e) {
+                stringRedisTemplate.delete(List.of(codeKey, pendingKey));
+                throw e;
+            }
             return null;
-        }
+        });
     }
 
     /**
@@ -116,7 +174,7 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
     }
 
     /**
-     * 邮件验证码重置密码操作，需要检查验证码是否正确
+     * 邮件验证码重置密码操作，需要检查验证码是否正确，重置成功后该用户所有已登录设备全部下线
      * @param info 重置基本信息
      * @return 操作结果，null表示正常，否则为错误原因
      */
@@ -129,6 +187,11 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
         boolean update = this.update().eq("email", email).set("password", password).update();
         if(update) {
             this.deleteEmailVerifyCode(email);
+            Account account = this.findAccountByNameOrEmail(email);
+            if(account != null) {
+                cache.evict(account.getId());
+                jwtUtils.invalidateAllJwt(account.getId());
+            }
         }
         return update ? null : "更新失败，请联系管理员";
     }
@@ -162,6 +225,7 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
                 .set("email", email)
                 .eq("id", id)
                 .update();
+        cache.evict(id);
         return null;
     }
 
@@ -191,24 +255,39 @@ public class AccountServiceImpl extends ServiceImpl<AccountMapper, Account> impl
      */
     private boolean verifyLimit(String address) {
         String key = Const.VERIFY_EMAIL_LIMIT + address;
-        return flow.limitOnceCheck(key, verifyLimit);
+        if(verifyAlgorithm == FlowAlgorithm.FIXED_WINDOW)
+            return flow.limitOnceCheck(key, verifyLimit);
+        return flow.limitCheck(verifyAlgorithm, key, null, 0, 1, verifyLimit);
     }
 
     /**
-     * 通过用户名或邮件地址查找用户
+     * 通过用户名或邮件地址查找用户，优先读取二级缓存，返回的账户可能不包含密码
      * @param text 用户名或邮件
      * @return 账户实体
      */
     public Account findAccountByNameOrEmail(String text){
-        return this.query()
+        Account account = cache.getByNameOrEmail(text);
+        if(account != null) return account;
+        account = this.query()
                 .eq("username", text).or()
                 .eq("email", text)
                 .one();
+        if(account != null) cache.put(account);
+        return account;
     }
 
+    /**
+     * 通过用户ID查找用户，优先读取二级缓存，返回的账户可能不包含密码
+     * @param id 用户ID
+     * @return 账户实体
+     */
     @Override
     public Account findAccountById(int id) {
-        return this.query().eq("id", id).one();
+        Account account = cache.getById(id);
+        if(account != null) return account;
+        account = this.query().eq("id", id).one();
+        if(account != null) cache.put(account);
+        return account;
     }
 
     /**
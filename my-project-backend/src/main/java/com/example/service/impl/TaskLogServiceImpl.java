@@ -4,9 +4,11 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.example.entity.dto.Task;
 import com.example.entity.dto.TaskLog;
+import com.example.entity.vo.response.CursorPageVO;
 import com.example.mapper.TaskLogMapper;
 import com.example.mapper.TaskMapper;
 import com.example.service.TaskLogService;
+import com.example.utils.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -36,19 +38,23 @@ public class TaskLogServiceImpl extends ServiceImpl<TaskLogMapper, TaskLog> impl
     }
 
     @Override
-    public List<TaskLog> getTaskLogs(int taskId) {
+    public CursorPageVO<TaskLog> getTaskLogs(int userId, int taskId, String cursor, int size) {
         QueryWrapper<TaskLog> wrapper = new QueryWrapper<>();
         wrapper.eq("task_id", taskId);
-        wrapper.orderByDesc("created_at");
-        return this.list(wrapper);
+        wrapper.eq("user_id", userId);
+        return this.page(wrapper, cursor, size);
     }
     
     @Override
-    public List<TaskLog> getUserLogs(int userId) {
+    public CursorPageVO<TaskLog> getUserLogs(int userId, String cursor, int size) {
         QueryWrapper<TaskLog> wrapper = new QueryWrapper<>();
         wrapper.eq("user_id", userId);
-        wrapper.orderByDesc("created_at");
-        return this.list(wrapper);
+        return this.page(wrapper, cursor, size);
+    }
+
+    private CursorPageVO<TaskLog> page(QueryWrapper<TaskLog> wrapper, String cursor, int size) {
+        PageCursor.apply(wrapper, PageCursor.decode(cursor), size);
+        return CursorPageVO.of(this.list(wrapper), size, log -> new PageCursor(log.getCreatedAt(), log.getId()));
     }
 
     @Override
@@ -4,15 +4,23 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.example.entity.dto.Task;
 import com.example.entity.vo.request.CreateTaskVO;
+import com.example.entity.vo.request.TaskQueryVO;
 import com.example.entity.vo.request.UpdateTaskVO;
+import com.example.entity.vo.response.CursorPageVO;
+import com.example.entity.vo.response.PageVO;
+import com.example.entity.vo.response.TaskTreeVO;
 import com.example.mapper.TaskMapper;
 import com.example.service.TaskLogService;
 import com.example.service.TaskService;
+import com.example.utils.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Date;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * 任务服务实现类
@@ -20,11 +28,41 @@ import java.util.List;
 @Service
 public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements TaskService {
 
+    //任务树的最大层级深度，同时限制层级路径的长度
+    private static final int MAX_DEPTH = 64;
+
+    //层级路径缺失时返回的错误信息
+    private static final String INVALID_PATH = "任务层级数据异常，请联系管理员修复";
+
+    //搜索时最多使用的关键词数量
+    private static final int MAX_SEARCH_TERMS = 8;
+
+    //全文检索布尔模式中有特殊含义的字符，关键词中的这些字符会被当作分隔符
+    private static final Pattern SEARCH_OPERATORS = Pattern.compile("[+\\-<>()~*\"@\\s]+");
+
     @Autowired
     private TaskLogService taskLogService;
 
+    /**
+     * 创建任务，有父任务时锁定父任务所在行，避免父任务同时被移动或删除导致层级路径失效
+     */
     @Override
+    @Transactional
     public String createTask(int userId, CreateTaskVO vo) {
+        Task parent = null;
+        if (vo.getParentId() != null) {
+            parent = this.lockTask(userId, vo.getParentId());
+            if (parent == null) {
+                return "父任务不存在";
+            }
+            if (!hasValidPath(parent)) {
+                return INVALID_PATH;
+            }
+            if (parent.getDepth() >= MAX_DEPTH) {
+                return "任务层级过深";
+            }
+        }
+
         Task task = new Task();
         task.setUserId(userId);
         task.setTitle(vo.getTitle());
@@ -32,6 +70,7 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements Ta
         task.setStatus(vo.getStatus() != null ? vo.getStatus() : "pending");
         task.setPriority(vo.getPriority() != null ? vo.getPriority() : "medium");
         task.setParentId(vo.getParentId());
+        task.setDepth(parent == null ? 0 : parent.getDepth() + 1);
         task.setStartDate(vo.getStartDate());
         task.setEndDate(vo.getEndDate());
         task.setDueDate(vo.getDueDate());
@@ -39,19 +78,35 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements Ta
         task.setUpdatedAt(new Date());
 
         if (this.save(task)) {
+            task.setPath((parent == null ? "/" : parent.getPath()) + task.getId() + "/");
+            this.update().eq("id", task.getId()).set("path", task.getPath()).update();
             taskLogService.createLog(task.getId(), userId, "create", "创建任务: " + task.getTitle());
             return null;
         }
         return "创建任务失败";
     }
 
+    /**
+     * 更新任务，父任务发生变化时将整棵子树移动到新的父任务下
+     */
     @Override
+    @Transactional
     public String updateTask(int userId, int taskId, UpdateTaskVO vo) {
         Task task = this.getTaskById(userId, taskId);
         if (task == null) {
             return "任务不存在";
         }
 
+        if (vo.getParentId() != null) {
+            Integer parentId = vo.getParentId() == 0 ? null : vo.getParentId();
+            if (!Objects.equals(parentId, task.getParentId())) {
+                String result = this.moveTask(userId, task, parentId);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+
         if (vo.getTitle() != null) {
             task.setTitle(vo.getTitle());
         }
@@ -64,9 +119,6 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements Ta
         if (vo.getPriority() != null) {
             task.setPriority(vo.getPriority());
         }
-        if (vo.getParentId() != null) {
-            task.setParentId(vo.getParentId());
-        }
         if (vo.getStartDate() != null) {
             task.setStartDate(vo.getStartDate());
         }
@@ -85,49 +137,165 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements Ta
         return "更新任务失败";
     }
 
+    /**
+     * 删除任务及其所有子任务，整棵子树在同一个事务内按层级路径前缀一次删除，
+     * 最后只为根任务记录一条汇总日志
+     */
     @Override
+    @Transactional
     public String deleteTask(int userId, int taskId) {
-        Task task = this.getTaskById(userId, taskId);
+        Task task = this.lockTask(userId, taskId);
         if (task == null) {
             return "任务不存在";
         }
+        if (!hasValidPath(task)) {
+            return INVALID_PATH;
+        }
+
+        QueryWrapper<Task> wrapper = new QueryWrapper<>();
+        wrapper.eq("user_id", userId);
+        wrapper.likeRight("path", task.getPath());
+        int deleted = baseMapper.delete(wrapper);
 
-        // 递归删除所有子任务
-        deleteTaskWithChildren(userId, taskId);
-        
-        taskLogService.createLog(taskId, userId, "delete", "删除任务: " + task.getTitle());
+        String description = deleted > 1
+                ? "删除任务: " + task.getTitle() + "，连同 " + (deleted - 1) + " 个子任务"
+                : "删除任务: " + task.getTitle();
+        taskLogService.createLog(taskId, userId, "delete", description);
         return null;
     }
-    
+
     /**
-     * 递归删除任务及其所有子任务
+     * 将任务及其子树移动到新的父任务下，同时锁定任务与新的父任务所在行，
+     * 并发的移动操作会依次执行，不会互相穿插形成环
+     * 新的父任务位于当前任务的子树中（路径以当前任务的路径开头）时拒绝移动
+     * @param userId 用户ID
+     * @param task 需要移动的任务，移动成功后更新其父任务、路径与深度
+     * @param parentId 新的父任务ID，为空表示移动到顶层
+     * @return 错误信息，移动成功为null
      */
-    private void deleteTaskWithChildren(int userId, int taskId) {
-        // 先查找所有子任务
-        List<Task> subTasks = this.getSubTasks(userId, taskId);
-        
-        // 递归删除每个子任务
-        for (Task subTask : subTasks) {
-            try {
-                deleteTaskWithChildren(userId, subTask.getId());
-            } catch (Exception e) {
-                // 如果子任务删除失败，抛出异常终止整个删除操作
-                throw new RuntimeException("删除子任务失败: " + subTask.getTitle(), e);
+    private String moveTask(int userId, Task task, Integer parentId) {
+        QueryWrapper<Task> wrapper = new QueryWrapper<>();
+        wrapper.eq("user_id", userId);
+        wrapper.in("id", parentId == null ? List.of(task.getId()) : List.of(task.getId(), parentId));
+        wrapper.orderByAsc("id");
+        wrapper.last("FOR UPDATE");
+        Map<Integer, Task> locked = this.list(wrapper).stream()
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+        Task current = locked.get(task.getId());
+        if (current == null) {
+            return "任务不存在";
+        }
+        if (!hasValidPath(current)) {
+            return INVALID_PATH;
+        }
+
+        String prefix = "/";
+        int depth = 0;
+        if (parentId != null) {
+            Task parent = locked.get(parentId);
+            if (parent == null) {
+                return "父任务不存在";
+            }
+            if (!hasValidPath(parent)) {
+                return INVALID_PATH;
             }
+            if (parent.getPath().startsWith(current.getPath())) {
+                return "不能将任务移动到自身或其子任务下";
+            }
+            prefix = parent.getPath();
+            depth = parent.getDepth() + 1;
         }
-        
-        // 删除当前任务
-        if (!this.removeById(taskId)) {
-            throw new RuntimeException("删除任务失败，任务ID: " + taskId);
+
+        QueryWrapper<Task> deepest = new QueryWrapper<>();
+        deepest.select("MAX(depth)");
+        deepest.eq("user_id", userId);
+        deepest.likeRight("path", current.getPath());
+        int height = this.getObj(deepest, depthValue -> ((Number) depthValue).intValue()) - current.getDepth();
+        if (depth + height > MAX_DEPTH) {
+            return "任务层级过深";
         }
+
+        String path = prefix + current.getId() + "/";
+        baseMapper.moveSubtree(userId, current.getId(), parentId, current.getPath(), path, depth - current.getDepth());
+        task.setParentId(parentId);
+        task.setPath(path);
+        task.setDepth(depth);
+        return null;
+    }
+
+    /**
+     * 检查任务的层级路径是否完整，路径必须以 / 开头并以任务自身ID结尾
+     * 路径为空的任务在作为前缀条件时会匹配用户的全部任务，必须在拼接前缀条件之前拒绝
+     * @param task 任务
+     * @return 路径是否完整
+     */
+    private static boolean hasValidPath(Task task) {
+        String path = task.getPath();
+        return path != null && path.startsWith("/") && path.endsWith("/" + task.getId() + "/");
+    }
+
+    /**
+     * 查询并锁定任务所在行，直到事务结束
+     * @param userId 用户ID
+     * @param taskId 任务ID
+     * @return 任务，不存在为null
+     */
+    private Task lockTask(int userId, int taskId) {
+        QueryWrapper<Task> wrapper = new QueryWrapper<>();
+        wrapper.eq("id", taskId);
+        wrapper.eq("user_id", userId);
+        wrapper.last("FOR UPDATE");
+        return this.getOne(wrapper);
     }
 
     @Override
-    public List<Task> getAllTasks(int userId) {
+    public CursorPageVO<Task> getTaskPage(int userId, TaskQueryVO query, String cursor, int size) {
+        QueryWrapper<Task> wrapper = taskQuery(userId, query, PageCursor.decode(cursor), size);
+        boolean byDue = "due".equals(query.getSort());
+        return CursorPageVO.of(this.list(wrapper), size,
+                task -> new PageCursor(byDue ? task.getDueDate() : task.getCreatedAt(), task.getId()));
+    }
+
+    /**
+     * 将查询条件编译为任务列表查询，每种条件组合都有对应的联合索引：
+     * 状态与截止日期使用 (user_id, status, due_date)，优先级与截止日期使用 (user_id, priority, due_date)，
+     * 父任务使用 (user_id, parent_id, created_at, id)，按截止日期排序使用 (user_id, due_date, id)，
+     * 其余情况使用 (user_id, created_at, id)
+     * @param userId 用户ID
+     * @param query 筛选与排序条件
+     * @param cursor 游标，第一页为null
+     * @param size 每页数量
+     * @return 查询条件
+     */
+    static QueryWrapper<Task> taskQuery(int userId, TaskQueryVO query, PageCursor cursor, int size) {
         QueryWrapper<Task> wrapper = new QueryWrapper<>();
         wrapper.eq("user_id", userId);
-        wrapper.orderByDesc("created_at");
-        return this.list(wrapper);
+        if (query.getStatus() != null && !query.getStatus().isEmpty()) {
+            wrapper.in("status", query.getStatus());
+        }
+        if (query.getPriority() != null && !query.getPriority().isEmpty()) {
+            wrapper.in("priority", query.getPriority());
+        }
+        if (query.getDueAfter() != null) {
+            wrapper.ge("due_date", query.getDueAfter());
+        }
+        if (query.getDueBefore() != null) {
+            wrapper.lt("due_date", query.getDueBefore());
+        }
+        if (query.getParentId() != null) {
+            if (query.getParentId() == 0) {
+                wrapper.isNull("parent_id");
+            } else {
+                wrapper.eq("parent_id", query.getParentId());
+            }
+        }
+        if ("due".equals(query.getSort())) {
+            wrapper.isNotNull("due_date");
+            PageCursor.apply(wrapper, cursor, size, "due_date", true);
+        } else {
+            PageCursor.apply(wrapper, cursor, size);
+        }
+        return wrapper;
     }
 
     @Override
@@ -138,6 +306,67 @@ public class TaskServiceImpl extends ServiceImpl<TaskMapper, Task> implements Ta
         return this.getOne(wrapper);
     }
 
+    /**
+     * 通过标题与描述上的全文索引搜索任务，索引由数据库在任务增删改的同一事务中维护，
+     * 每个关键词都作为短语必须命中，结果按相关度排序
+     * 相关度无法走索引排序，数据库总是需要为全部命中结果计算相关度，因此直接按页码分页
+     */
+    @Override
+    public PageVO<Task> searchTasks(int userId, String keyword, int page, int size) {
+        String query = booleanQuery(keyword);
+        if (query == null) {
+            return new PageVO<>(List.of(), page, false);
+        }
+        List<Task> tasks = baseMapper.search(userId, query, (page - 1) * size, size + 1);
+        return PageVO.of(tasks, page, size);
+    }
+
+    /**
+     * 将用户输入的关键词转换为全文检索布尔模式表达式，去除其中的运算符，避免用户输入改变检索语义
+     * @param keyword 用户输入的关键词
+     * @return 布尔模式表达式，没有有效关键词时为null
+     */
+    static String booleanQuery(String keyword) {
+        String query = Arrays.stream(SEARCH_OPERATORS.split(keyword))
+                .filter(term -> !term.isEmpty())
+                .limit(MAX_SEARCH_TERMS)
+                .map(term -> "+\"" + term + "\"")
+                .collect(Collectors.joining(" "));
+        return query.isEmpty() ? null : query;
+    }
+
+    @Override
+    public List<TaskTreeVO> getTaskTree(int userId, Integer rootId, Integer depth) {
+        String path = null;
+        Integer maxDepth = null;
+        if (rootId != null) {
+            Task root = this.getTaskById(userId, rootId);
+            if (root == null || !hasValidPath(root)) {
+                return null;
+            }
+            path = root.getPath();
+            if (depth != null) {
+                maxDepth = root.getDepth() + depth;
+            }
+        } else if (depth != null) {
+            maxDepth = depth;
+        }
+
+        Map<Integer, TaskTreeVO> nodes = new HashMap<>();
+        List<TaskTreeVO> roots = new ArrayList<>();
+        for (Task task : baseMapper.selectTree(userId, path, maxDepth)) {
+            TaskTreeVO node = task.asViewObject(TaskTreeVO.class);
+            nodes.put(node.getId(), node);
+            TaskTreeVO parent = node.getParentId() == null ? null : nodes.get(node.getParentId());
+            if (parent == null) {
+                roots.add(node);
+            } else {
+                parent.getChildren().add(node);
+            }
+        }
+        return roots;
+    }
+
     @Override
     public List<Task> getSubTasks(int userId, int parentId) {
         QueryWrapper<Task> wrapper = new QueryWrapper<>();
@@ -0,0 +1,186 @@
+package com.example.utils;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.entity.dto.Account;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 账户信息二级缓存，一级为进程内本地缓存，二级为Redis共享缓存
+ * 账户实体按ID缓存，用户名与邮箱只缓存到ID的映射，读取时会校验映射是否仍然有效
+ * 账户信息变更时删除Redis缓存并通过发布订阅通知所有节点清理本地缓存
+ * 缓存中的账户不包含密码，密码哈希只在登录认证时直接从数据库读取，不会写入共享的Redis中
+ */
+@Slf4j
+@Component
+public class AccountCache implements MessageListener {
+
+    @Resource
+    StringRedisTemplate template;
+
+    @Resource
+    RedisMessageListenerContainer container;
+
+    //本地缓存最大数量
+    @Value("${spring.web.cache.account.size}")
+    int size;
+    //本地缓存存活时间，秒为单位
+    @Value("${spring.web.cache.account.local-expire}")
+    int localExpire;
+    //Redis缓存存活时间，秒为单位
+    @Value("${spring.web.cache.account.redis-expire}")
+    int redisExpire;
+
+    //用户ID -> 账户
+    private LocalCache<Integer, Account> accounts;
+    //用户名或邮箱 -> 用户ID
+    private LocalCache<String, Integer> names;
+
+    @PostConstruct
+    public void init() {
+        this.accounts = new LocalCache<>(size, TimeUnit.SECONDS.toMillis(localExpire));
+        this.names = new LocalCache<>(size * 2, TimeUnit.SECONDS.toMillis(localExpire));
+        container.addMessageListener(this, new ChannelTopic(Const.ACCOUNT_CACHE_CHANNEL));
+    }
+
+    /**
+     * 通过用户ID获取缓存的账户
+     * @param id 用户ID
+     * @return 账户实体，未缓存则为null
+     */
+    public Account getById(int id) {
+        Account account = accounts.get(id);
+        if(account != null) return account;
+        String json = template.opsForValue().get(Const.ACCOUNT_CACHE_ID + id);
+        if(json == null) return null;
+        account = JSON.parseObject(json, Account.class);
+        accounts.put(id, account);
+        return account;
+    }
+
+    /**
+     * 通过用户名或邮箱获取缓存的账户
+     * @param text 用户名或邮箱
+     * @return 账户实体，未缓存则为null
+     */
+    public Account getByNameOrEmail(String text) {
+        Integer id = names.get(text);
+        if(id == null) {
+            String value = template.opsForValue().get(Const.ACCOUNT_CACHE_NAME + text);
+            if(value == null) return null;
+            id = Integer.valueOf(value);
+        }
+        Account account = this.getById(id);
+        if(account == null || !this.matches(account, text)) {
+            names.remove(text);
+            return null;
+        }
+        names.put(text, id);
+        return account;
+    }
+
+    /**
+     * 将从数据库中查询到的账户去掉密码后写入两级缓存，传入的实体本身不会被修改
+     * @param account 账户实体
+     */
+    public void put(Account account) {
+        int id = account.getId();
+        Account cached = this.withoutPassword(account);
+        accounts.put(id, cached);
+        template.opsForValue().set(Const.ACCOUNT_CACHE_ID + id,
+                JSON.toJSONString(cached), redisExpire, TimeUnit.SECONDS);
+        for (String text : new String[]{ account.getUsername(), account.getEmail() }) {
+            if(text == null) continue;
+            names.put(text, id);
+            template.opsForValue().set(Const.ACCOUNT_CACHE_NAME + text,
+                    String.valueOf(id), redisExpire, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 账户信息变更后清除对应缓存，如果处于事务中，事务提交后会再清除一次，
+     * 防止提交前被其他请求读取到旧数据重新写入缓存
+     * @param id 用户ID
+     */
+    public void evict(int id) {
+        this.doEvict(id);
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvict(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * 接收其他节点广播的缓存清除通知
+     * @param message 消息内容，为用户ID
+     * @param pattern 订阅模式
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            accounts.remove(Integer.valueOf(body));
+        } catch (NumberFormatException e) {
+            log.warn("收到无法解析的账户缓存同步消息: {}", body);
+        }
+    }
+
+    /**
+     * 删除Redis中账户实体以及用户名、邮箱映射，清除本地缓存并广播给其他节点
+     * @param id 用户ID
+     */
+    private void doEvict(int id) {
+        List<String> keys = new ArrayList<>();
+        keys.add(Const.ACCOUNT_CACHE_ID + id);
+        Account account = this.getById(id);
+        if(account != null) {
+            for (String text : new String[]{ account.getUsername(), account.getEmail() }) {
+                if(text == null) continue;
+                keys.add(Const.ACCOUNT_CACHE_NAME + text);
+                names.remove(text);
+            }
+        }
+        template.delete(keys);
+        accounts.remove(id);
+        template.convertAndSend(Const.ACCOUNT_CACHE_CHANNEL, String.valueOf(id));
+    }
+
+    /**
+     * 复制一份不包含密码的账户实体用于缓存
+     * @param account 账户实体
+     * @return 密码为null的账户副本
+     */
+    private Account withoutPassword(Account account) {
+        return new Account(account.getId(), account.getUsername(), null,
+                account.getEmail(), account.getRole(), account.getRegisterTime());
+    }
+
+    /**
+     * 校验缓存的账户是否仍然匹配该用户名或邮箱，与数据库排序规则一致忽略大小写
+     * @param account 账户实体
+     * @param text 用户名或邮箱
+     * @return 是否匹配
+     */
+    private boolean matches(Account account, String text) {
+        return text.equalsIgnoreCase(account.getUsername()) || text.equalsIgnoreCase(account.getEmail());
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 有界密码编码器，将BCrypt等高开销的密码编码与校验放到独立的有界线程池中执行
+ * 避免登录、注册高峰时哈希计算占满所有请求线程，线程池与等待队列都已满时直接拒绝，
+ * 调用方快速得到繁忙提示而不是继续排队
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    //等待哈希结果的最长时间，毫秒为单位
+    private final long timeout;
+    private final Timer latency;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queue,
+                                  long timeout, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.timeout = timeout;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("password.hash.queue", executor, e -> e.getQueue().size())
+                .description("等待执行的密码哈希任务数量")
+                .register(registry);
+        Gauge.builder("password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("正在执行的密码哈希任务数量")
+                .register(registry);
+        this.latency = Timer.builder("password.hash.latency")
+                .description("单次密码哈希计算耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        this.rejected = Counter.builder("password.hash.rejected")
+                .description("因繁忙被拒绝的密码哈希任务数量")
+                .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return this.submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return this.submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * 在线程池中异步编码密码，不等待结果，用于登录成功后的密码升级这类可以延后或跳过的工作
+     * 线程池与等待队列都已满时直接放弃，不会抛出繁忙异常影响调用方
+     * @param rawPassword 原始密码
+     * @param callback 编码完成后的回调，在哈希线程中执行
+     * @return 是否已提交
+     */
+    public boolean encodeAsync(CharSequence rawPassword, Consumer<String> callback) {
+        try {
+            executor.execute(() -> {
+                try {
+                    callback.accept(latency.record(() -> delegate.encode(rawPassword)));
+                } catch (RuntimeException e) {
+                    log.warn("异步密码编码任务执行失败", e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return false;
+        }
+    }
+
+    /**
+     * 容器关闭时停止线程池
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 提交哈希任务并等待结果，线程池已满或等待超时都会抛出繁忙异常
+     * @param task 哈希任务
+     * @return 任务结果
+     * @param <T> 结果类型
+     */
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> latency.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new BusyException();
+        }
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new BusyException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusyException();
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException exception) throw exception;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 密码哈希线程池繁忙时抛出的异常，继承验证异常以便登录流程交给失败处理器统一处理
+     */
+    public static class BusyException extends AuthenticationServiceException {
+        public BusyException() {
+            super("服务器繁忙，请稍后再试");
+        }
+    }
+}
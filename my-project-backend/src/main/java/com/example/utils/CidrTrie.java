@@ -0,0 +1,131 @@
+package com.example.utils;
+
+/**
+ * 路径压缩的二进制前缀树，用于按最长前缀匹配IP地址网段
+ * 只有分叉或带值的网段才会产生节点，单链路径被压缩为一个节点，
+ * 查找时每一位最多比较一次，耗时与地址位数成正比，与网段数量无关
+ * 同一棵树只应存放同一种长度的地址，IPv4与IPv6分别使用独立的树
+ * @param <V> 网段关联的值类型
+ */
+public class CidrTrie<V> {
+
+    private Node<V> root;
+    private int size;
+
+    /**
+     * 插入网段，同一网段重复插入时覆盖原有值
+     * @param address 网段地址
+     * @param length 前缀长度，以位为单位
+     * @param value 网段关联的值
+     */
+    public void put(byte[] address, int length, V value) {
+        if(length < 0 || length > address.length * 8)
+            throw new IllegalArgumentException("Invalid prefix length: " + length);
+        if(root == null) {
+            root = new Node<>(address, length, value);
+            size++;
+            return;
+        }
+        Node<V> parent = null;
+        Node<V> node = root;
+        int checked = 0;
+        while (true) {
+            int common = commonPrefix(node.address, address, checked, Math.min(node.length, length));
+            if(common == node.length) {
+                if(node.length == length) {
+                    if(node.value == null) size++;
+                    node.value = value;
+                    return;
+                }
+                int bit = bit(address, node.length);
+                if(node.children[bit] == null) {
+                    node.children[bit] = new Node<>(address, length, value);
+                    size++;
+                    return;
+                }
+                parent = node;
+                node = node.children[bit];
+                checked = common;
+                continue;
+            }
+            Node<V> split = new Node<>(address, common, common == length ? value : null);
+            split.children[bit(node.address, common)] = node;
+            if(common < length)
+                split.children[bit(address, common)] = new Node<>(address, length, value);
+            if(parent == null) {
+                root = split;
+            } else {
+                parent.children[bit(address, parent.length)] = split;
+            }
+            size++;
+            return;
+        }
+    }
+
+    /**
+     * 查找包含该地址的最长网段
+     * @param address 地址
+     * @return 最长匹配网段关联的值，没有匹配则为null
+     */
+    public V match(byte[] address) {
+        int bits = address.length * 8;
+        Node<V> node = root;
+        V best = null;
+        int checked = 0;
+        while (node != null && node.length <= bits) {
+            if(commonPrefix(node.address, address, checked, node.length) < node.length) break;
+            if(node.value != null) best = node.value;
+            if(node.length == bits) break;
+            checked = node.length;
+            node = node.children[bit(address, node.length)];
+        }
+        return best;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 计算两个地址从指定位开始的公共前缀长度
+     * @param a 地址
+     * @param b 地址
+     * @param from 起始位，之前的位已确认相同
+     * @param to 最多比较到的位
+     * @return 公共前缀长度
+     */
+    private static int commonPrefix(byte[] a, byte[] b, int from, int to) {
+        int i = from;
+        while (i < to) {
+            if((i & 7) == 0 && to - i >= 8) {
+                int diff = (a[i >> 3] ^ b[i >> 3]) & 0xFF;
+                if(diff == 0) {
+                    i += 8;
+                    continue;
+                }
+                return i + Integer.numberOfLeadingZeros(diff) - 24;
+            }
+            if(bit(a, i) != bit(b, i)) return i;
+            i++;
+        }
+        return to;
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index >> 3] >> (7 - (index & 7))) & 1;
+    }
+
+    private static class Node<V> {
+        private final byte[] address;
+        private final int length;
+        private V value;
+        @SuppressWarnings("unchecked")
+        private final Node<V>[] children = new Node[2];
+
+        Node(byte[] address, int length, V value) {
+            this.address = address;
+            this.length = length;
+            this.value = value;
+        }
+    }
+}
@@ -6,21 +6,46 @@ package com.example.utils;
 public final class Const {
     //JWT令牌
     public final static String JWT_BLACK_LIST = "jwt:blacklist:";
+    public final static String JWT_REVOKED = "jwt:revoked";
     public final static String JWT_FREQUENCY = "jwt:frequency:";
+    public final static String JWT_BLACK_LIST_CHANNEL = "jwt:blacklist:channel";
+    public final static String JWT_EPOCH = "jwt:epoch:";
+    public final static String JWT_EPOCH_CHANNEL = "jwt:epoch:channel";
+    //账户缓存
+    public final static String ACCOUNT_CACHE_ID = "account:cache:id:";
+    public final static String ACCOUNT_CACHE_NAME = "account:cache:name:";
+    public final static String ACCOUNT_CACHE_CHANNEL = "account:cache:channel";
     //请求频率限制
     public final static String FLOW_LIMIT_COUNTER = "flow:counter:";
     public final static String FLOW_LIMIT_BLOCK = "flow:block:";
+    //接口级别限流，拼接在请求频率限制的计数键与封禁键之后
+    public final static String FLOW_LIMIT_ROUTE = "route:";
+    //登录请求限流，拼接在请求频率限制的计数键与封禁键之后
+    public final static String LOGIN_LIMIT_IP = "login:ip:";
+    public final static String LOGIN_LIMIT_USER = "login:user:";
     //邮件验证码
     public final static String VERIFY_EMAIL_LIMIT = "verify:email:limit:";
     public final static String VERIFY_EMAIL_DATA = "verify:email:data:";
+    public final static String VERIFY_EMAIL_PENDING = "verify:email:pending:";
+    //跨节点租约锁
+    public final static String LOCK_LEASE = "lock:lease:";
+    public final static String LOCK_ACCOUNT_NAME = "account:name:";
     //过滤器优先级
     public final static int ORDER_FLOW_LIMIT = -101;
     public final static int ORDER_CORS = -102;
+    public final static int ORDER_IP_FILTER = -103;
     //请求自定义属性
     public final static String ATTR_USER_ID = "userId";
+    public final static String ATTR_IP_ALLOWED = "ipAllowed";
     //消息队列
     public final static String MQ_MAIL = "mail";
+    public final static String MQ_MAIL_RETRY = "mail.retry.";
+    public final static String MQ_MAIL_DLX = "mail.dlx";
+    public final static String MQ_MAIL_DLQ = "mail.dlq";
+    public final static String MQ_HEADER_RETRY = "x-retry-count";
+    public final static String MQ_TYPE_MAIL = "mail";
     //用户角色
     public final static String ROLE_DEFAULT = "user";
+    public final static String ROLE_ADMIN = "admin";
 
 }
@@ -0,0 +1,108 @@
+package com.example.utils;
+
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * 可选的限流算法，每种算法都对应一段在Redis中原子执行的脚本，单次检查只需一次网络往返
+ * 固定窗口与原有的周期限流完全相同，由 {@link FlowUtils} 直接使用其限流脚本，其余算法的脚本共用相同的参数约定以及封禁逻辑：
+ * KEYS[1] 计数键，KEYS[2] 封禁键（可选）
+ * ARGV[1] 请求频率，ARGV[2] 计数周期（秒），ARGV[3] 超出频率后的封禁时间（秒），ARGV[4] 请求唯一标识
+ */
+public enum FlowAlgorithm {
+
+    /**
+     * 固定窗口计数，每个周期内最多请求指定次数，窗口边界处可能出现两倍请求
+     * 直接使用 {@link FlowUtils} 中的限流脚本的封禁模式，不再单独维护一份脚本
+     * 每次检查：INCR，首次额外一次EXPIRE，每个键只占用一个整数
+     */
+    FIXED_WINDOW(null),
+    /**
+     * 滑动窗口日志，记录周期内每次请求的时间，限制最精确
+     * 每次检查：ZREMRANGEBYSCORE、ZCARD、ZADD、PEXPIRE，每个键最多占用请求频率个有序集合元素
+     */
+    SLIDING_LOG("""
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - period)
+            if redis.call('ZCARD', KEYS[1]) < frequency then
+                redis.call('ZADD', KEYS[1], now, now .. ':' .. ARGV[4])
+                allowed = true
+            end
+            redis.call('PEXPIRE', KEYS[1], period)
+            """),
+    /**
+     * 滑动窗口计数，按当前窗口已过去的比例加权上一窗口的计数进行估算
+     * 每次检查：HMGET、HSET、PEXPIRE，每个键只占用三个哈希字段
+     */
+    SLIDING_COUNTER("""
+            local window = math.floor(now / period)
+            local state = redis.call('HMGET', KEYS[1], 'window', 'current', 'previous')
+            local last = tonumber(state[1]) or window
+            local current = tonumber(state[2]) or 0
+            local previous = tonumber(state[3]) or 0
+            if last == window - 1 then
+                previous = current
+                current = 0
+            elseif last ~= window then
+                previous = 0
+                current = 0
+            end
+            local weight = 1 - (now % period) / period
+            if previous * weight + current < frequency then
+                current = current + 1
+                allowed = true
+            end
+            redis.call('HSET', KEYS[1], 'window', window, 'current', current, 'previous', previous)
+            redis.call('PEXPIRE', KEYS[1], period * 2)
+            """),
+    /**
+     * 令牌桶，桶容量为请求频率，一个周期内恰好补满，允许空闲后的突发请求
+     * 每次检查：HMGET、HSET、PEXPIRE，每个键只占用两个哈希字段
+     */
+    TOKEN_BUCKET("""
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'time')
+            local tokens = tonumber(state[1]) or frequency
+            local last = tonumber(state[2]) or now
+            tokens = math.min(frequency, tokens + math.max(now - last, 0) * frequency / period)
+            if tokens >= 1 then
+                tokens = tokens - 1
+                allowed = true
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tokens, 'time', now)
+            redis.call('PEXPIRE', KEYS[1], period)
+            """);
+
+    //处于封禁期间直接拒绝，并统一以Redis服务器时间为准，避免各节点时钟不一致
+    private static final String PRELUDE = """
+            if KEYS[2] and redis.call('EXISTS', KEYS[2]) == 1 then
+                return 0
+            end
+            local frequency = tonumber(ARGV[1])
+            local period = tonumber(ARGV[2]) * 1000
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local allowed = false
+            """;
+
+    //超出频率时按需写入封禁键
+    private static final String EPILOGUE = """
+            if allowed then
+                return 1
+            end
+            if KEYS[2] and tonumber(ARGV[3]) > 0 then
+                redis.call('SET', KEYS[2], '', 'EX', ARGV[3])
+            end
+            return 0
+            """;
+
+    private final RedisScript<Long> script;
+
+    FlowAlgorithm(String body) {
+        this.script = body == null ? null : RedisScript.of(PRELUDE + body + EPILOGUE, Long.class);
+    }
+
+    /**
+     * @return 算法对应的脚本，固定窗口没有单独的脚本，为null
+     */
+    public RedisScript<Long> script() {
+        return script;
+    }
+}
@@ -3,14 +3,16 @@ package com.example.utils;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
-import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 限流通用工具
  * 针对于不同的情况进行限流操作，支持限流升级
+ * 每次检查都通过Lua脚本在Redis中原子完成，只需一次网络往返
  */
 @Slf4j
 @Component
@@ -19,6 +21,69 @@ public class FlowUtils {
     @Resource
     StringRedisTemplate template;
 
+    private static final String MODE_ONCE = "once";
+    private static final String MODE_UPGRADE = "upgrade";
+    private static final String MODE_BLOCK = "block";
+
+    /**
+     * 限流脚本，读取、计数、续期以及封禁在Redis中原子执行，不再需要JVM内加锁
+     * KEYS[1] 计数键，KEYS[2] 封禁键（可选）
+     * ARGV[1] 请求频率，ARGV[2] 计数周期，ARGV[3] 超出频率后的处理方式，ARGV[4] 超出频率后的限制时间
+     */
+    private static final RedisScript<Long> LIMIT_SCRIPT = RedisScript.of("""
+            if KEYS[2] and redis.call('EXISTS', KEYS[2]) == 1 then
+                return 0
+            end
+            local count = redis.call('INCR', KEYS[1])
+            if count == 1 then
+                redis.call('EXPIRE', KEYS[1], ARGV[2])
+                return 1
+            end
+            local overclock = count > tonumber(ARGV[1])
+            if ARGV[3] == 'upgrade' then
+                if overclock then
+                    redis.call('SET', KEYS[1], '1', 'EX', ARGV[4])
+                end
+                return 0
+            elseif ARGV[3] == 'block' then
+                if overclock then
+                    if KEYS[2] then
+                        redis.call('SET', KEYS[2], '', 'EX', ARGV[4])
+                    end
+                    return 0
+                end
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * 配额借用脚本，从固定窗口计数中一次性划出一块配额，配额耗尽时写入封禁键
+     * KEYS[1] 计数键，KEYS[2] 封禁键
+     * ARGV[1] 请求频率，ARGV[2] 计数周期，ARGV[3] 希望借用的数量，ARGV[4] 封禁时间
+     * 返回 {借到的数量, 有效时间（毫秒）}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> BORROW_SCRIPT = RedisScript.of("""
+            local blocked = redis.call('PTTL', KEYS[2])
+            if blocked > 0 then
+                return {0, blocked}
+            end
+            local used = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local granted = math.min(tonumber(ARGV[3]), tonumber(ARGV[1]) - used)
+            if granted <= 0 then
+                redis.call('SET', KEYS[2], '', 'EX', ARGV[4])
+                return {0, tonumber(ARGV[4]) * 1000}
+            end
+            redis.call('INCRBY', KEYS[1], granted)
+            local ttl = redis.call('PTTL', KEYS[1])
+            if ttl < 0 then
+                redis.call('EXPIRE', KEYS[1], ARGV[2])
+                ttl = tonumber(ARGV[2]) * 1000
+            end
+            return {granted, ttl}
+            """, List.class);
+
     /**
      * 针对于单次频率限制，请求成功后，在冷却时间内不得再次进行请求，如3秒内不能再次发起请求
      * @param key 键
@@ -26,7 +91,7 @@ public class FlowUtils {
      * @return 是否通过限流检查
      */
     public boolean limitOnceCheck(String key, int blockTime){
-        return this.internalCheck(key, 1, blockTime, (overclock) -> false);
+        return this.internalCheck(key, null, 1, blockTime, MODE_ONCE, 0);
     }
 
     /**
@@ -39,56 +104,87 @@ public class FlowUtils {
      * @return 是否通过限流检查
      */
     public boolean limitOnceUpgradeCheck(String key, int frequency, int baseTime, int upgradeTime){
-        return this.internalCheck(key, frequency, baseTime, (overclock) -> {
-                    if (overclock)
-                        template.opsForValue().set(key, "1", upgradeTime, TimeUnit.SECONDS);
-                    return false;
-                });
+        return this.internalCheck(key, null, frequency, baseTime, MODE_UPGRADE, upgradeTime);
     }
 
     /**
      * 针对于在时间段内多次请求限制，如3秒内限制请求20次，超出频率则封禁一段时间
+     * 处于封禁期间的请求直接判定为不通过
      * @param counterKey 计数键
-     * @param blockKey 封禁键
+     * @param blockKey 封禁键，为null则超出频率时不封禁
      * @param blockTime 封禁时间
      * @param frequency 请求频率
      * @param period 计数周期
      * @return 是否通过限流检查
      */
     public boolean limitPeriodCheck(String counterKey, String blockKey, int blockTime, int frequency, int period){
-        return this.internalCheck(counterKey, frequency, period, (overclock) -> {
-                    if (overclock)
-                        template.opsForValue().set(blockKey, "", blockTime, TimeUnit.SECONDS);
-                    return !overclock;
-                });
+        return this.internalCheck(counterKey, blockKey, frequency, period, MODE_BLOCK, blockTime);
     }
 
     /**
-     * 内部使用请求限制主要逻辑
-     * @param key 计数键
+     * 查询是否处于封禁期间，只读取封禁键，不进行计数
+     * @param blockKey 封禁键
+     * @return 是否处于封禁期间
+     */
+    public boolean isBlocked(String blockKey){
+        return Boolean.TRUE.equals(template.hasKey(blockKey));
+    }
+
+    /**
+     * 使用指定的限流算法进行检查，超出频率则封禁一段时间，处于封禁期间的请求直接判定为不通过
+     * 固定窗口算法直接交给 {@link #limitPeriodCheck} 处理
+     * @param algorithm 限流算法
+     * @param counterKey 计数键
+     * @param blockKey 封禁键，为null则超出频率时不封禁
+     * @param blockTime 封禁时间
      * @param frequency 请求频率
      * @param period 计数周期
-     * @param action 限制行为与策略
      * @return 是否通过限流检查
      */
-    private boolean internalCheck(String key, int frequency, int period, LimitAction action){
-        String count = template.opsForValue().get(key);
-        if (count != null) {
-            long value = Optional.ofNullable(template.opsForValue().increment(key)).orElse(0L);
-            int c = Integer.parseInt(count);
-            if(value != c + 1)
-                template.expire(key, period, TimeUnit.SECONDS);
-            return action.run(value > frequency);
-        } else {
-            template.opsForValue().set(key, "1", period, TimeUnit.SECONDS);
-            return true;
-        }
+    public boolean limitCheck(FlowAlgorithm algorithm, String counterKey, String blockKey,
+                              int blockTime, int frequency, int period){
+        if(algorithm == FlowAlgorithm.FIXED_WINDOW)
+            return this.limitPeriodCheck(counterKey, blockKey, blockTime, frequency, period);
+        List<String> keys = blockKey == null ? List.of(counterKey) : List.of(counterKey, blockKey);
+        Long result = template.execute(algorithm.script(), keys,
+                String.valueOf(frequency), String.valueOf(period), String.valueOf(blockTime),
+                Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        return result != null && result == 1L;
+    }
+
+    /**
+     * 为本地配额计数器从固定窗口计数中借用一块配额，处于封禁期间或配额耗尽时借到的数量为0
+     * @param counterKey 计数键
+     * @param blockKey 封禁键
+     * @param amount 希望借用的数量
+     * @param blockTime 封禁时间
+     * @param frequency 请求频率
+     * @param period 计数周期
+     * @return 借用结果
+     */
+    public LocalQuotaCounter.Grant borrowQuota(String counterKey, String blockKey, int amount,
+                                               int blockTime, int frequency, int period){
+        List<?> result = template.execute(BORROW_SCRIPT, List.of(counterKey, blockKey),
+                String.valueOf(frequency), String.valueOf(period), String.valueOf(amount), String.valueOf(blockTime));
+        if(result == null || result.size() < 2)
+            return new LocalQuotaCounter.Grant(0, 1000L * blockTime);
+        return new LocalQuotaCounter.Grant(((Number) result.get(0)).intValue(), ((Number) result.get(1)).longValue());
     }
 
     /**
-     * 内部使用，限制行为与策略
+     * 内部使用请求限制主要逻辑，通过脚本一次往返原子完成
+     * @param key 计数键
+     * @param blockKey 封禁键，没有则为null
+     * @param frequency 请求频率
+     * @param period 计数周期
+     * @param mode 超出频率后的处理方式
+     * @param penaltyTime 超出频率后的限制时间
+     * @return 是否通过限流检查
      */
-    private interface LimitAction {
-        boolean run(boolean overclock);
+    private boolean internalCheck(String key, String blockKey, int frequency, int period, String mode, int penaltyTime){
+        List<String> keys = blockKey == null ? List.of(key) : List.of(key, blockKey);
+        Long result = template.execute(LIMIT_SCRIPT, keys,
+                String.valueOf(frequency), String.valueOf(period), mode, String.valueOf(penaltyTime));
+        return result != null && result == 1L;
     }
 }
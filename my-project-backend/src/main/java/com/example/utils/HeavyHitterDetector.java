@@ -0,0 +1,100 @@
+package com.example.utils;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 滥用请求检测，分别按IP地址与用户ID统计统计窗口内的请求次数
+ * 超出阈值的访问者直接在本地封禁一段时间，无需访问Redis
+ */
+@Slf4j
+@Component
+public class HeavyHitterDetector {
+
+    //计数矩阵宽度与深度
+    @Value("${spring.web.flow.heavy-hitter.width}")
+    int width;
+    @Value("${spring.web.flow.heavy-hitter.depth}")
+    int depth;
+    //每个时间槽的长度，秒为单位，统计窗口为时间槽长度乘以时间槽数量
+    @Value("${spring.web.flow.heavy-hitter.slot}")
+    int slot;
+    @Value("${spring.web.flow.heavy-hitter.slots}")
+    int slots;
+    //记录的高频访问者数量
+    @Value("${spring.web.flow.heavy-hitter.top}")
+    int top;
+    //统计窗口内请求次数超过该值则自动封禁
+    @Value("${spring.web.flow.heavy-hitter.threshold}")
+    int threshold;
+    //自动封禁时间，秒为单位
+    @Value("${spring.web.flow.heavy-hitter.block}")
+    int block;
+
+    private HeavyHitters addresses;
+    private HeavyHitters users;
+    //本地封禁列表，容量固定，超出后淘汰部分条目
+    private LocalCache<String, Boolean> blocked;
+
+    @PostConstruct
+    public void init() {
+        this.addresses = new HeavyHitters(width, depth, slots, top);
+        this.users = new HeavyHitters(width, depth, slots, top);
+        this.blocked = new LocalCache<>(Math.max(top * 4, 64), TimeUnit.SECONDS.toMillis(block));
+    }
+
+    /**
+     * 记录一次来自该IP地址的请求
+     * @param address IP地址
+     * @return 是否允许继续访问
+     */
+    public boolean recordAddress(String address) {
+        return this.record(addresses, "ip:", address);
+    }
+
+    /**
+     * 记录一次来自该用户的请求
+     * @param userId 用户ID
+     * @return 是否允许继续访问
+     */
+    public boolean recordUser(int userId) {
+        return this.record(users, "user:", String.valueOf(userId));
+    }
+
+    /**
+     * 当前统计窗口内的高频访问者以及检测配置
+     * @return 统计快照
+     */
+    public Map<String, Object> snapshot() {
+        return Map.of(
+                "window", slot * slots,
+                "threshold", threshold,
+                "addresses", addresses.topHitters(),
+                "users", users.topHitters()
+        );
+    }
+
+    /**
+     * 定期轮转时间槽，使统计窗口向前滑动
+     */
+    @Scheduled(fixedRateString = "${spring.web.flow.heavy-hitter.slot}", timeUnit = TimeUnit.SECONDS)
+    public void rotate() {
+        addresses.rotate();
+        users.rotate();
+    }
+
+    private boolean record(HeavyHitters hitters, String prefix, String key) {
+        String blockKey = prefix + key;
+        if(blocked.get(blockKey) != null) return false;
+        if(hitters.add(key) <= threshold) return true;
+        blocked.put(blockKey, Boolean.TRUE);
+        log.warn("访问者 {} 在 {} 秒内请求次数超过 {}，自动封禁 {} 秒", blockKey, slot * slots, threshold, block);
+        return false;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 基于Count-Min Sketch的高频访问者统计，内存占用固定，与访问者数量无关
+ * 统计窗口被划分为多个时间槽，每个时间槽一份计数矩阵，定期轮转并清空最旧的时间槽，以此近似滑动窗口
+ * 估算值只会偏大不会偏小，同时维护一个容量固定的候选表记录估算值最高的访问者
+ */
+public class HeavyHitters {
+
+    private final int depth;
+    private final int mask;
+    private final int top;
+    //每一行哈希函数的种子
+    private final int[] seeds;
+    //每个时间槽一份计数矩阵，按行展开为一维数组
+    private final AtomicIntegerArray[] slots;
+    private volatile int current = 0;
+    //估算值最高的访问者 -> 估算值
+    private final Map<String, Long> candidates = new ConcurrentHashMap<>();
+    //候选表中的最低估算值，低于该值的访问者无需尝试进入候选表
+    private volatile long floor = 0;
+
+    /**
+     * @param width 计数矩阵宽度，会向上取整为2的幂
+     * @param depth 计数矩阵深度，即哈希函数数量
+     * @param slots 时间槽数量
+     * @param top 候选表容量
+     */
+    public HeavyHitters(int width, int depth, int slots, int top) {
+        if(width <= 0 || depth <= 0 || slots <= 0 || top <= 0)
+            throw new IllegalArgumentException("Sketch dimensions must be greater than 0");
+        int size = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.depth = depth;
+        this.mask = size - 1;
+        this.top = top;
+        SecureRandom random = new SecureRandom();
+        this.seeds = new int[depth];
+        for (int i = 0; i < depth; i++)
+            this.seeds[i] = random.nextInt();
+        this.slots = new AtomicIntegerArray[slots];
+        for (int i = 0; i < slots; i++)
+            this.slots[i] = new AtomicIntegerArray(size * depth);
+    }
+
+    /**
+     * 记录一次访问
+     * @param key 访问者
+     * @return 该访问者在统计窗口内的估算访问次数
+     */
+    public long add(String key) {
+        int[] indexes = this.indexes(key);
+        AtomicIntegerArray slot = slots[current];
+        for (int index : indexes)
+            slot.incrementAndGet(index);
+        long estimate = this.estimate(indexes);
+        this.offer(key, estimate);
+        return estimate;
+    }
+
+    /**
+     * 查询访问者在统计窗口内的估算访问次数
+     * @param key 访问者
+     * @return 估算访问次数
+     */
+    public long estimate(String key) {
+        return this.estimate(this.indexes(key));
+    }
+
+    /**
+     * 轮转到下一个时间槽，最旧时间槽的计数被清空，并同步刷新候选表
+     */
+    public synchronized void rotate() {
+        int next = (current + 1) % slots.length;
+        AtomicIntegerArray slot = slots[next];
+        for (int i = 0; i < slot.length(); i++)
+            slot.set(i, 0);
+        current = next;
+        candidates.replaceAll((key, value) -> this.estimate(key));
+        candidates.values().removeIf(value -> value <= 0);
+        this.trim();
+    }
+
+    /**
+     * 获取估算访问次数最高的访问者，按次数从高到低排序
+     * @return 高频访问者列表
+     */
+    public List<Hitter> topHitters() {
+        List<Hitter> list = new ArrayList<>(top);
+        candidates.forEach((key, value) -> list.add(new Hitter(key, value)));
+        list.sort(Comparator.comparingLong(Hitter::count).reversed());
+        return list;
+    }
+
+    private void offer(String key, long estimate) {
+        if(candidates.computeIfPresent(key, (k, value) -> Math.max(value, estimate)) != null) return;
+        if(candidates.size() >= top && estimate <= floor) return;
+        synchronized (this) {
+            candidates.merge(key, estimate, Math::max);
+            this.trim();
+        }
+    }
+
+    /**
+     * 候选表超出容量时移除估算值最低的访问者，并更新最低估算值
+     */
+    private void trim() {
+        while (candidates.size() > top) {
+            candidates.entrySet().stream()
+                    .min(Map.Entry.comparingByValue())
+                    .ifPresent(entry -> candidates.remove(entry.getKey()));
+        }
+        floor = candidates.size() < top ? 0 : candidates.values().stream()
+                .mapToLong(Long::longValue).min().orElse(0);
+    }
+
+    private long estimate(int[] indexes) {
+        long min = Long.MAX_VALUE;
+        for (int index : indexes) {
+            long sum = 0;
+            for (AtomicIntegerArray slot : slots)
+                sum += slot.get(index);
+            min = Math.min(min, sum);
+        }
+        return min;
+    }
+
+    /**
+     * 为每一行计算独立的哈希位置，每一行使用不同种子的murmur3哈希处理访问者的完整字节，
+     * 不能从String.hashCode派生，否则hashCode相同的访问者在每一行都会冲突，
+     * 攻击者可以构造这样的访问者抬高其他人的估算值，种子在启动时随机生成，无法提前构造冲突
+     * @param key 访问者
+     * @return 每一行在一维数组中的下标
+     */
+    private int[] indexes(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int[] indexes = new int[depth];
+        for (int row = 0; row < depth; row++)
+            indexes[row] = row * (mask + 1) + (murmur3(bytes, seeds[row]) & mask);
+        return indexes;
+    }
+
+    /**
+     * MurmurHash3 x86 32位版本
+     * @param data 数据
+     * @param seed 种子
+     * @return 哈希值
+     */
+    static int murmur3(byte[] data, int seed) {
+        int h = seed;
+        int blocks = data.length >> 2;
+        for (int i = 0; i < blocks; i++) {
+            int offset = i << 2;
+            int k = (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8
+                    | (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+            h ^= mixKey(k);
+            h = Integer.rotateLeft(h, 13) * 5 + 0xE6546B64;
+        }
+        int offset = blocks << 2;
+        int k = 0;
+        switch (data.length & 3) {
+            case 3: k ^= (data[offset + 2] & 0xFF) << 16;
+            case 2: k ^= (data[offset + 1] & 0xFF) << 8;
+            case 1:
+                k ^= data[offset] & 0xFF;
+                h ^= mixKey(k);
+        }
+        h ^= data.length;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int mixKey(int k) {
+        k *= 0xCC9E2D51;
+        k = Integer.rotateLeft(k, 15);
+        return k * 0x1B873593;
+    }
+
+    /**
+     * 高频访问者
+     * @param key 访问者
+     * @param count 估算访问次数
+     */
+    public record Hitter(String key, long count) {}
+}
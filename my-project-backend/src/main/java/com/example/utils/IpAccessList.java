@@ -0,0 +1,98 @@
+package com.example.utils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * IP地址黑白名单，IPv4与IPv6网段分别存放在独立的前缀树中，按最长前缀匹配
+ * 名单每行一条规则，格式为 allow|deny 网段，例如 deny 203.0.113.0/24 或 allow 2001:db8::/32，
+ * 省略前缀长度表示单个地址，以#开头的行为注释
+ * 构建完成后只读，可以被多个线程同时查询
+ */
+public class IpAccessList {
+
+    //只接受IP地址字面量，避免InetAddress对主机名发起DNS查询
+    private static final Pattern LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}|[0-9a-fA-F]*:[0-9a-fA-F:.]*");
+
+    public static final IpAccessList EMPTY = new IpAccessList();
+
+    private final CidrTrie<Rule> ipv4 = new CidrTrie<>();
+    private final CidrTrie<Rule> ipv6 = new CidrTrie<>();
+
+    /**
+     * 解析名单内容
+     * @param lines 名单的每一行
+     * @return 黑白名单
+     * @throws IllegalArgumentException 存在无法解析的规则
+     */
+    public static IpAccessList parse(List<String> lines) {
+        IpAccessList list = new IpAccessList();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if(line.isEmpty() || line.startsWith("#")) continue;
+            String[] parts = line.split("\\s+");
+            if(parts.length != 2)
+                throw new IllegalArgumentException("第 " + (i + 1) + " 行格式错误: " + line);
+            Rule rule = switch (parts[0].toLowerCase()) {
+                case "allow" -> Rule.ALLOW;
+                case "deny" -> Rule.DENY;
+                default -> throw new IllegalArgumentException("第 " + (i + 1) + " 行规则类型错误: " + parts[0]);
+            };
+            list.add(parts[1], rule, i + 1);
+        }
+        return list;
+    }
+
+    /**
+     * 查询地址命中的规则
+     * @param address IP地址字面量
+     * @return 命中的规则，没有命中或地址无法解析则为null
+     */
+    public Rule match(String address) {
+        byte[] bytes = toBytes(address);
+        if(bytes == null) return null;
+        return bytes.length == 4 ? ipv4.match(bytes) : ipv6.match(bytes);
+    }
+
+    public int size() {
+        return ipv4.size() + ipv6.size();
+    }
+
+    private void add(String cidr, Rule rule, int line) {
+        int index = cidr.indexOf('/');
+        byte[] bytes = toBytes(index < 0 ? cidr : cidr.substring(0, index));
+        if(bytes == null)
+            throw new IllegalArgumentException("第 " + line + " 行地址错误: " + cidr);
+        int length = bytes.length * 8;
+        if(index >= 0) {
+            try {
+                length = Integer.parseInt(cidr.substring(index + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("第 " + line + " 行前缀长度错误: " + cidr);
+            }
+            if(length < 0 || length > bytes.length * 8)
+                throw new IllegalArgumentException("第 " + line + " 行前缀长度错误: " + cidr);
+        }
+        (bytes.length == 4 ? ipv4 : ipv6).put(bytes, length, rule);
+    }
+
+    /**
+     * 将IP地址字面量转换为字节数组，IPv4映射的IPv6地址会被转换为IPv4地址
+     * @param address IP地址字面量
+     * @return 4或16字节的地址，无法解析则为null
+     */
+    private static byte[] toBytes(String address) {
+        if(address == null || address.isEmpty() || !LITERAL.matcher(address).matches()) return null;
+        try {
+            return InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    public enum Rule {
+        ALLOW, DENY
+    }
+}
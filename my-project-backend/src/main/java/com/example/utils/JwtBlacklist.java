@@ -0,0 +1,197 @@
+package com.example.utils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jwt令牌黑名单，Redis中的一个有序集合作为唯一数据源（成员为令牌ID，分数为令牌过期时间戳），同时在本地维护一份副本
+ * 令牌加入黑名单时通过Redis发布订阅通知所有节点，并定期读取有序集合中尚未过期的部分兜底，
+ * 同步开销只与未过期的已注销令牌数量相关，与Redis中键的总数无关，
+ * 这样绝大多数未被注销的令牌只需一次内存查询即可完成校验
+ * 本地副本没有数量上限，占用的内存随令牌有效期内的注销次数增长，令牌过期后才会被清理
+ * 除单个令牌外还为每个用户维护一个令牌纪元，纪元递增后该用户之前签发的所有令牌全部失效
+ */
+@Slf4j
+@Component
+public class JwtBlacklist implements MessageListener {
+
+    @Resource
+    StringRedisTemplate template;
+
+    @Resource
+    RedisMessageListenerContainer container;
+
+    //本地缓存最大数量
+    @Value("${spring.security.jwt.cache-size}")
+    int cacheSize;
+    //黑名单全量同步周期，同时作为本地纪元缓存的存活时间，秒为单位
+    @Value("${spring.security.jwt.blacklist-sync}")
+    int syncPeriod;
+
+    //本地黑名单副本，令牌ID -> 令牌过期时间戳，条目数等于令牌有效期内的注销次数
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    //本地用户令牌纪元缓存，用户ID -> 纪元
+    private LocalCache<Integer, Long> epochs;
+
+    @PostConstruct
+    public void init() {
+        this.epochs = new LocalCache<>(cacheSize, TimeUnit.SECONDS.toMillis(syncPeriod));
+        container.addMessageListener(this, new ChannelTopic(Const.JWT_BLACK_LIST_CHANNEL));
+        container.addMessageListener(this, new ChannelTopic(Const.JWT_EPOCH_CHANNEL));
+        this.migrateLegacyKeys();
+    }
+
+    /**
+     * 判断令牌是否已被列入黑名单，只查询本地副本
+     * @param uuid 令牌ID
+     * @return 是否已列入黑名单
+     */
+    public boolean contains(String uuid) {
+        Long expireAt = revoked.get(uuid);
+        if(expireAt == null) return false;
+        if(expireAt <= System.currentTimeMillis()) {
+            revoked.remove(uuid, expireAt);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 将令牌列入黑名单，写入Redis后广播给其他节点
+     * @param uuid 令牌ID
+     * @param time 令牌过期时间
+     * @return 是否操作成功，令牌已在黑名单中则返回false
+     */
+    public boolean add(String uuid, Date time) {
+        long expireAt = time.getTime();
+        if(expireAt <= System.currentTimeMillis()) return false;
+        Boolean success = template.opsForZSet().addIfAbsent(Const.JWT_REVOKED, uuid, expireAt);
+        if(!Boolean.TRUE.equals(success)) return false;
+        revoked.put(uuid, expireAt);
+        template.convertAndSend(Const.JWT_BLACK_LIST_CHANNEL, uuid + ":" + expireAt);
+        return true;
+    }
+
+    /**
+     * 获取用户当前的令牌纪元，优先读取本地缓存
+     * @param userId 用户ID
+     * @return 令牌纪元，从未吊销过则为0
+     */
+    public long currentEpoch(int userId) {
+        Long epoch = epochs.get(userId);
+        if(epoch != null) return epoch;
+        String value = template.opsForValue().get(Const.JWT_EPOCH + userId);
+        epoch = value == null ? 0L : Long.parseLong(value);
+        epochs.put(userId, epoch);
+        return epoch;
+    }
+
+    /**
+     * 递增用户的令牌纪元，使该用户已签发的全部令牌失效，只需一次写入
+     * 纪元键不设置过期时间，纪元必须单调递增：吊销之后签发的令牌携带新纪元，可能比纪元键活得更久，
+     * 一旦纪元键过期归零，下一次吊销会重新从1开始计数，这些令牌就不会再被判定为失效
+     * @param userId 用户ID
+     * @return 新的令牌纪元
+     */
+    public long revokeAll(int userId) {
+        Long epoch = template.opsForValue().increment(Const.JWT_EPOCH + userId);
+        long value = epoch == null ? 0L : epoch;
+        epochs.put(userId, value);
+        template.convertAndSend(Const.JWT_EPOCH_CHANNEL, userId + ":" + value);
+        return value;
+    }
+
+    /**
+     * 接收其他节点广播的黑名单以及令牌纪元变更
+     * @param message 消息内容，格式为 令牌ID:过期时间戳 或 用户ID:纪元
+     * @param pattern 订阅模式
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = body.lastIndexOf(':');
+        if(index <= 0) return;
+        try {
+            long value = Long.parseLong(body.substring(index + 1));
+            if(Const.JWT_EPOCH_CHANNEL.equals(channel)) {
+                epochs.put(Integer.parseInt(body.substring(0, index)), value);
+            } else {
+                revoked.put(body.substring(0, index), value);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("收到无法解析的令牌同步消息: {}", body);
+        }
+    }
+
+    /**
+     * 定期从Redis同步黑名单，防止发布订阅消息丢失，同时清理本地与Redis中已过期的条目
+     * 只读取有序集合中过期时间晚于当前时间的成员，不需要遍历整个键空间
+     */
+    @Scheduled(fixedDelayString = "${spring.security.jwt.blacklist-sync}", timeUnit = TimeUnit.SECONDS)
+    public void synchronize() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expireAt -> expireAt <= now);
+        ZSetOperations<String, String> operations = template.opsForZSet();
+        operations.removeRangeByScore(Const.JWT_REVOKED, Double.NEGATIVE_INFINITY, now);
+        Set<ZSetOperations.TypedTuple<String>> entries =
+                operations.rangeByScoreWithScores(Const.JWT_REVOKED, now, Double.POSITIVE_INFINITY);
+        if(entries == null) return;
+        for (ZSetOperations.TypedTuple<String> entry : entries) {
+            if(entry.getValue() != null && entry.getScore() != null)
+                revoked.put(entry.getValue(), entry.getScore().longValue());
+        }
+    }
+
+    /**
+     * 旧版本为每个注销的令牌单独写入一个黑名单键，启动时使用SCAN将仍然有效的旧键并入有序集合，
+     * 只在启动时执行一次，所有旧键都过期（一个令牌有效期）之后可以移除
+     */
+    private void migrateLegacyKeys() {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(Const.JWT_BLACK_LIST + "*")
+                .count(1000)
+                .build();
+        List<String> keys = template.execute((RedisCallback<List<String>>) connection -> {
+            List<String> list = new ArrayList<>();
+            try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                cursor.forEachRemaining(key -> list.add(new String(key, StandardCharsets.UTF_8)));
+            }
+            return list;
+        });
+        if(keys == null || keys.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        List<Object> ttls = template.executePipelined((RedisCallback<Object>) connection -> {
+            keys.forEach(key -> connection.keyCommands().pTtl(key.getBytes(StandardCharsets.UTF_8)));
+            return null;
+        });
+        for (int i = 0; i < keys.size(); i++) {
+            if(ttls.get(i) instanceof Long ttl && ttl > 0)
+                template.opsForZSet().addIfAbsent(Const.JWT_REVOKED,
+                        keys.get(i).substring(Const.JWT_BLACK_LIST.length()), now + ttl);
+        }
+        log.info("已将 {} 个旧版本黑名单键并入有序集合", keys.size());
+    }
+}
@@ -6,14 +6,18 @@ import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.entity.AuthUser;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
@@ -38,13 +42,41 @@ public class JwtUtils {
     //判定用户在冷却时间内，继续恶意刷令牌的次数
     @Value("${spring.security.jwt.limit.frequency}")
     private int limit_frequency;
+    //令牌申请使用的限流算法，固定窗口保持冷却与升级封禁的原有行为
+    @Value("${spring.web.flow.algorithm.jwt}")
+    private FlowAlgorithm limit_algorithm;
+    //已校验令牌的本地缓存最大数量
+    @Value("${spring.security.jwt.cache-size}")
+    private int cacheSize;
+
+    //签名算法与校验器都是线程安全的，全局共享同一个实例
+    private Algorithm algorithm;
+    private JWTVerifier verifier;
+    //已通过签名校验的令牌缓存，以令牌摘要为键，条目在令牌过期时失效
+    private LocalCache<String, VerifiedToken> tokenCache;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final Base64.Encoder DIGEST_ENCODER = Base64.getEncoder().withoutPadding();
 
     @Resource
-    StringRedisTemplate template;
+    JwtBlacklist blacklist;
 
     @Resource
     FlowUtils utils;
 
+    @PostConstruct
+    public void init() {
+        this.algorithm = Algorithm.HMAC256(key);
+        this.verifier = JWT.require(algorithm).build();
+        this.tokenCache = new LocalCache<>(cacheSize, TimeUnit.HOURS.toMillis(expire));
+    }
+
     /**
      * 让指定Jwt令牌失效
      * @param headerToken 请求头中携带的令牌
@@ -52,16 +84,24 @@ public class JwtUtils {
      */
     public boolean invalidateJwt(String headerToken){
         String token = this.convertToken(headerToken);
-        Algorithm algorithm = Algorithm.HMAC256(key);
-        JWTVerifier jwtVerifier = JWT.require(algorithm).build();
+        if(token == null) return false;
         try {
-            DecodedJWT verify = jwtVerifier.verify(token);
+            DecodedJWT verify = verifier.verify(token);
+            tokenCache.remove(this.digest(token));
             return deleteToken(verify.getId(), verify.getExpiresAt());
         } catch (JWTVerificationException e) {
             return false;
         }
     }
 
+    /**
+     * 让指定用户已签发的全部Jwt令牌失效，用于退出所有设备登录
+     * @param userId 用户ID
+     */
+    public void invalidateAllJwt(int userId){
+        blacklist.revokeAll(userId);
+    }
+
     /**
      * 根据配置快速计算过期时间
      * @return 过期时间
@@ -79,11 +119,11 @@ public class JwtUtils {
      */
     public String createJwt(UserDetails user, String username, int userId) {
         if(this.frequencyCheck(userId)) {
-            Algorithm algorithm = Algorithm.HMAC256(key);
             Date expire = this.expireTime();
             return JWT.create()
                     .withJWTId(UUID.randomUUID().toString())
                     .withClaim("id", userId)
+                    .withClaim("epoch", blacklist.currentEpoch(userId))
                     .withClaim("name", username)
                     .withClaim("authorities", user.getAuthorities()
                             .stream()
@@ -97,58 +137,56 @@ public class JwtUtils {
     }
 
     /**
-     * 解析Jwt令牌
+     * 解析Jwt令牌，已经校验过的令牌直接从本地缓存中取出，无需重复验签和解析
      * @param headerToken 请求头中携带的令牌
-     * @return DecodedJWT
+     * @return 已验证的用户，令牌无效则为null
      */
-    public DecodedJWT resolveJwt(String headerToken){
+    public AuthUser resolveJwt(String headerToken){
         String token = this.convertToken(headerToken);
         if(token == null) return null;
-        Algorithm algorithm = Algorithm.HMAC256(key);
-        JWTVerifier jwtVerifier = JWT.require(algorithm).build();
-        try {
-            DecodedJWT verify = jwtVerifier.verify(token);
-            if(this.isInvalidToken(verify.getId())) return null;
-            Map<String, Claim> claims = verify.getClaims();
-            return new Date().after(claims.get("exp").asDate()) ? null : verify;
-        } catch (JWTVerificationException e) {
-            return null;
+        String digest = this.digest(token);
+        VerifiedToken verified = tokenCache.get(digest);
+        if(verified == null) {
+            try {
+                verified = this.toVerifiedToken(verifier.verify(token));
+            } catch (JWTVerificationException e) {
+                return null;
+            }
+            tokenCache.put(digest, verified, verified.expireAt());
         }
+        if(this.isInvalidToken(verified.id()) || this.isRevokedEpoch(verified)) return null;
+        return System.currentTimeMillis() > verified.expireAt() ? null : verified.user();
     }
 
     /**
-     * 将jwt对象中的内容封装为UserDetails
-     * @param jwt 已解析的Jwt对象
-     * @return UserDetails
-     */
-    public UserDetails toUser(DecodedJWT jwt) {
-        Map<String, Claim> claims = jwt.getClaims();
-        return User
-                .withUsername(claims.get("name").asString())
-                .password("******")
-                .authorities(claims.get("authorities").asArray(String.class))
-                .build();
-    }
-
-    /**
-     * 将jwt对象中的用户ID提取出来
+     * 将jwt对象中的内容一次性提取出来，包括用户信息、令牌ID、过期时间以及纪元
      * @param jwt 已解析的Jwt对象
-     * @return 用户ID
+     * @return 已验证令牌
      */
-    public Integer toId(DecodedJWT jwt) {
+    private VerifiedToken toVerifiedToken(DecodedJWT jwt) {
         Map<String, Claim> claims = jwt.getClaims();
-        return claims.get("id").asInt();
+        Claim epoch = claims.get("epoch");
+        AuthUser user = new AuthUser(
+                claims.get("id").asInt(),
+                claims.get("name").asString(),
+                AuthorityUtils.createAuthorityList(claims.get("authorities").asArray(String.class)));
+        return new VerifiedToken(jwt.getId(), jwt.getExpiresAt().getTime(),
+                epoch == null || epoch.isNull() ? 0L : epoch.asLong(), user);
     }
 
     /**
      * 频率检测，防止用户高频申请Jwt令牌，并且采用阶段封禁机制
      * 如果已经提示无法登录的情况下用户还在刷，那么就封禁更长时间
+     * 选用其他算法时，冷却时间内最多申请指定次数，超出则封禁升级时间
      * @param userId 用户ID
      * @return 是否通过频率检测
      */
     private boolean frequencyCheck(int userId){
         String key = Const.JWT_FREQUENCY + userId;
-        return utils.limitOnceUpgradeCheck(key, limit_frequency, limit_base, limit_upgrade);
+        if(limit_algorithm == FlowAlgorithm.FIXED_WINDOW)
+            return utils.limitOnceUpgradeCheck(key, limit_frequency, limit_base, limit_upgrade);
+        return utils.limitCheck(limit_algorithm, key, Const.FLOW_LIMIT_BLOCK + key,
+                limit_upgrade, limit_frequency, limit_base);
     }
 
     /**
@@ -163,26 +201,50 @@ public class JwtUtils {
     }
 
     /**
-     * 将Token列入Redis黑名单中
+     * 计算令牌的SHA-256摘要，作为本地缓存的键
+     * @param token 令牌
+     * @return 摘要字符串
+     */
+    private String digest(String token){
+        MessageDigest digest = DIGEST.get();
+        byte[] hash = digest.digest(token.getBytes(StandardCharsets.US_ASCII));
+        return DIGEST_ENCODER.encodeToString(hash);
+    }
+
+    /**
+     * 将Token列入黑名单中
      * @param uuid 令牌ID
      * @param time 过期时间
      * @return 是否操作成功
      */
     private boolean deleteToken(String uuid, Date time){
-        if(this.isInvalidToken(uuid))
-            return false;
-        Date now = new Date();
-        long expire = Math.max(time.getTime() - now.getTime(), 0);
-        template.opsForValue().set(Const.JWT_BLACK_LIST + uuid, "", expire, TimeUnit.MILLISECONDS);
-        return true;
+        return blacklist.add(uuid, time);
     }
 
     /**
-     * 验证Token是否被列入Redis黑名单
+     * 验证Token是否被列入黑名单，只查询本地同步的黑名单副本
      * @param uuid 令牌ID
      * @return 是否操作成功
      */
     private boolean isInvalidToken(String uuid){
-        return Boolean.TRUE.equals(template.hasKey(Const.JWT_BLACK_LIST + uuid));
+        return blacklist.contains(uuid);
     }
+
+    /**
+     * 验证Token签发时的纪元是否早于用户当前纪元，早于则说明已被批量吊销
+     * @param token 已验证令牌
+     * @return 是否已被吊销
+     */
+    private boolean isRevokedEpoch(VerifiedToken token){
+        return token.epoch() < blacklist.currentEpoch(token.user().id());
+    }
+
+    /**
+     * 已通过签名校验的令牌，缓存后重复请求直接复用其中的用户信息
+     * @param id 令牌ID
+     * @param expireAt 过期时间戳
+     * @param epoch 签发时的用户令牌纪元
+     * @param user 已验证的用户
+     */
+    private record VerifiedToken(String id, long expireAt, long epoch, AuthUser user) {}
 }
@@ -0,0 +1,105 @@
+package com.example.utils;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 进程内本地缓存，支持容量上限以及按条目过期
+ * 读取操作无锁，容量超限时优先清理过期条目，仍然超限则淘汰部分条目
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class LocalCache<K, V> {
+
+    //最大缓存条目数量
+    private final int maxSize;
+    //默认存活时间，毫秒为单位
+    private final long defaultTtl;
+    private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+
+    public LocalCache(int maxSize, long defaultTtl) {
+        if(maxSize <= 0)
+            throw new IllegalArgumentException("Cache size must be greater than 0");
+        this.maxSize = maxSize;
+        this.defaultTtl = defaultTtl;
+    }
+
+    /**
+     * 获取缓存值，已过期的条目视为不存在
+     * @param key 键
+     * @return 缓存值，不存在则为null
+     */
+    public V get(K key) {
+        Entry<V> entry = map.get(key);
+        if(entry == null) return null;
+        if(entry.expireAt <= System.currentTimeMillis()) {
+            map.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * 使用默认存活时间写入缓存
+     * @param key 键
+     * @param value 值
+     */
+    public void put(K key, V value) {
+        this.put(key, value, System.currentTimeMillis() + defaultTtl);
+    }
+
+    /**
+     * 写入缓存并指定过期时间点，过期时间不会超过默认存活时间
+     * @param key 键
+     * @param value 值
+     * @param expireAt 过期时间戳，毫秒为单位
+     */
+    public void put(K key, V value, long expireAt) {
+        if(map.size() >= maxSize) this.evict();
+        long expire = Math.min(expireAt, System.currentTimeMillis() + defaultTtl);
+        map.put(key, new Entry<>(value, expire));
+    }
+
+    /**
+     * 移除指定缓存
+     * @param key 键
+     */
+    public void remove(K key) {
+        map.remove(key);
+    }
+
+    /**
+     * 清空所有缓存
+     */
+    public void clear() {
+        map.clear();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * 容量超限时的淘汰逻辑，同一时间只允许一个线程执行
+     * 先清理过期条目，如果仍然超出容量则淘汰十分之一的条目
+     */
+    private void evict() {
+        if(!evicting.compareAndSet(false, true)) return;
+        try {
+            long now = System.currentTimeMillis();
+            map.entrySet().removeIf(e -> e.getValue().expireAt <= now);
+            int target = maxSize - Math.max(maxSize / 10, 1);
+            Iterator<K> iterator = map.keySet().iterator();
+            while (map.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private record Entry<V>(V value, long expireAt) {}
+}
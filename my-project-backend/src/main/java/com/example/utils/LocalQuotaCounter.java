@@ -0,0 +1,145 @@
+package com.example.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地配额计数器，作为Redis限流之前的进程内缓冲层
+ * 每个键按块从Redis借用配额，借到的配额在本地无锁扣减，用完或窗口结束后再次借用，
+ * 这样Redis访问次数只与节点数量以及块大小相关，而与请求量无关
+ * 集群范围内的总请求数仍不会超过Redis中的限制，但各节点未用完的配额会随窗口结束作废，因此限制只是近似值
+ */
+public class LocalQuotaCounter {
+
+    //每次从Redis借用的配额数量
+    private final int chunk;
+    private final Borrower borrower;
+    private final ConcurrentHashMap<String, Quota> quotas = new ConcurrentHashMap<>();
+    //正在向Redis借用配额的键，同一个键的其他线程等待该结果而不是重复借用
+    private final ConcurrentHashMap<String, CompletableFuture<Quota>> borrowing = new ConcurrentHashMap<>();
+
+    public LocalQuotaCounter(int chunk, Borrower borrower) {
+        if(chunk <= 0)
+            throw new IllegalArgumentException("Chunk size must be greater than 0");
+        this.chunk = chunk;
+        this.borrower = borrower;
+    }
+
+    /**
+     * 尝试消耗一个配额，本地配额充足时无需访问Redis
+     * 新借到的配额可能被其他线程抢先用完，此时继续借用直到成功或被拒绝
+     * @param key 键
+     * @return 是否通过限流检查
+     */
+    public boolean tryAcquire(String key) {
+        long now = System.currentTimeMillis();
+        Quota quota = quotas.get(key);
+        while (true) {
+            if(quota != null && quota.expireAt > now) {
+                if(quota.tryTake()) return true;
+                if(quota.denied) return false;
+            }
+            quota = this.refill(key, now);
+        }
+    }
+
+    /**
+     * 清理已过期的配额，避免不再访问的键一直占用内存
+     */
+    public void purge() {
+        long now = System.currentTimeMillis();
+        quotas.values().removeIf(quota -> quota.expireAt <= now);
+    }
+
+    public int size() {
+        return quotas.size();
+    }
+
+    /**
+     * 向Redis借用新的配额，同一个键同一时间只会有一个线程发起借用，
+     * 其他线程等待后直接使用借到的配额
+     * 借用在ConcurrentHashMap.compute之外进行，避免Redis网络往返期间阻塞同一哈希桶中的其他键
+     * @param key 键
+     * @param now 当前时间戳
+     * @return 最新的配额
+     */
+    private Quota refill(String key, long now) {
+        Quota current = quotas.get(key);
+        if(current != null && current.usable(now)) return current;
+        CompletableFuture<Quota> future = new CompletableFuture<>();
+        CompletableFuture<Quota> pending = borrowing.putIfAbsent(key, future);
+        if(pending != null) return this.await(pending);
+        try {
+            current = quotas.get(key);
+            if(current == null || !current.usable(now)) {
+                Grant grant = borrower.borrow(key, chunk);
+                current = new Quota(grant.amount(), now + Math.max(grant.ttl(), 1), grant.amount() <= 0);
+                quotas.put(key, current);
+            }
+            future.complete(current);
+            return current;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            borrowing.remove(key, future);
+        }
+    }
+
+    /**
+     * 等待其他线程的借用结果，借用失败时抛出与发起借用的线程相同的异常
+     * @param pending 借用中的配额
+     * @return 借到的配额
+     */
+    private Quota await(CompletableFuture<Quota> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof RuntimeException cause) throw cause;
+            if(e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * 从Redis借用配额的方式
+     */
+    @FunctionalInterface
+    public interface Borrower {
+        /**
+         * @param key 键
+         * @param amount 希望借用的配额数量
+         * @return 实际借到的配额数量以及有效时间
+         */
+        Grant borrow(String key, int amount);
+    }
+
+    /**
+     * 借用结果，借到的配额为0表示已被限制，有效时间内本地直接拒绝
+     * @param amount 借到的配额数量
+     * @param ttl 配额有效时间，毫秒为单位
+     */
+    public record Grant(int amount, long ttl) {}
+
+    private static class Quota {
+        private final AtomicInteger remaining;
+        private final long expireAt;
+        private final boolean denied;
+
+        Quota(int remaining, long expireAt, boolean denied) {
+            this.remaining = new AtomicInteger(remaining);
+            this.expireAt = expireAt;
+            this.denied = denied;
+        }
+
+        boolean usable(long now) {
+            return expireAt > now && (denied || remaining.get() > 0);
+        }
+
+        boolean tryTake() {
+            return remaining.getAndUpdate(value -> value > 0 ? value - 1 : value) > 0;
+        }
+    }
+}
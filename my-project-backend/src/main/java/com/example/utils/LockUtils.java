@@ -0,0 +1,94 @@
+package com.example.utils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 按键加锁的通用工具
+ * 单节点内的互斥使用固定大小的分段锁表，需要跨节点互斥时使用Redis租约
+ */
+@Component
+public class LockUtils {
+
+    @Resource
+    StringRedisTemplate template;
+
+    //本地分段锁数量
+    @Value("${spring.web.lock.stripes}")
+    int stripes;
+    //Redis租约的最长持有时间，毫秒为单位，持有者异常退出时租约到期自动释放
+    @Value("${spring.web.lock.lease}")
+    long lease;
+
+    private StripedLock locks;
+
+    //只有租约持有者才能释放租约，防止租约过期后误删其他节点重新获取的租约
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    @PostConstruct
+    public void init() {
+        this.locks = new StripedLock(stripes);
+    }
+
+    /**
+     * 持有本地分段锁执行操作，只保证当前节点内同一个键的操作互斥
+     * @param key 键
+     * @param action 操作
+     * @return 操作结果
+     * @param <T> 结果类型
+     */
+    public <T> T executeLocal(String key, Supplier<T> action) {
+        return locks.execute(key, action);
+    }
+
+    /**
+     * 持有Redis租约执行操作，保证所有节点内同一个键的操作互斥，租约已被占用时不等待直接执行繁忙处理
+     * 如果处于事务中，租约会在事务结束后才释放，防止其他节点在提交前读取到旧数据
+     * @param key 键
+     * @param action 操作
+     * @param busy 租约已被占用时的处理
+     * @return 操作结果
+     * @param <T> 结果类型
+     */
+    public <T> T executeLeased(String key, Supplier<T> action, Supplier<T> busy) {
+        String leaseKey = Const.LOCK_LEASE + key;
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = template.opsForValue().setIfAbsent(leaseKey, token, lease, TimeUnit.MILLISECONDS);
+        if(!Boolean.TRUE.equals(acquired)) return busy.get();
+        boolean deferred = false;
+        try {
+            if(TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        release(leaseKey, token);
+                    }
+                });
+                deferred = true;
+            }
+            return action.get();
+        } finally {
+            if(!deferred) this.release(leaseKey, token);
+        }
+    }
+
+    private void release(String leaseKey, String token) {
+        template.execute(RELEASE_SCRIPT, List.of(leaseKey), token);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.utils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 邮件队列监控，定期查询邮件队列、重试队列以及死信队列的积压数量并导出为监控指标
+ * 查询结果缓存在本地，读取积压数量不会访问RabbitMQ
+ * 积压数量或消费延迟超过阈值时视为饱和，用于在验证码请求入口处降载
+ */
+@Slf4j
+@Component
+public class MailQueueMonitor {
+
+    @Resource
+    AmqpAdmin admin;
+
+    @Resource
+    MeterRegistry registry;
+
+    //邮件最大尝试发送次数，决定重试队列数量
+    @Value("${spring.web.mail.retry.max-attempts}")
+    int maxAttempts;
+    //邮件队列积压超过该数量时拒绝新的验证码请求
+    @Value("${spring.web.mail.backpressure.max-depth}")
+    long maxDepth;
+    //最近的消费延迟超过该时间时拒绝新的验证码请求，秒为单位
+    @Value("${spring.web.mail.backpressure.max-lag}")
+    long maxLag;
+    //拒绝时建议客户端重试的等待时间，秒为单位
+    @Value("${spring.web.mail.backpressure.retry-after}")
+    int retryAfter;
+
+    private volatile long depth;
+    private volatile long consumers;
+    private volatile long retrying;
+    private volatile long dead;
+    private volatile boolean saturated;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("mail.queue.depth", this, MailQueueMonitor::depth)
+                .description("邮件队列中等待发送的消息数量")
+                .register(registry);
+        Gauge.builder("mail.queue.consumers", this, monitor -> monitor.consumers)
+                .description("邮件队列的消费者数量")
+                .register(registry);
+        Gauge.builder("mail.retry.depth", this, monitor -> monitor.retrying)
+                .description("各重试队列中等待重试的消息总数")
+                .register(registry);
+        Gauge.builder("mail.dlq.depth", this, monitor -> monitor.dead)
+                .description("死信队列中的消息数量")
+                .register(registry);
+    }
+
+    /**
+     * @return 最近一次查询到的邮件队列积压数量
+     */
+    public long depth() {
+        return depth;
+    }
+
+    /**
+     * 邮件队列已饱和时直接拒绝，此时新的验证码邮件很可能在验证码过期后才能送达
+     * 只读取定期刷新的缓存结果，不会访问RabbitMQ
+     * @throws SaturatedException 邮件队列已饱和
+     */
+    public void checkSaturation() {
+        if(saturated) throw new SaturatedException(retryAfter);
+    }
+
+    /**
+     * 定期刷新各队列的积压数量以及是否饱和
+     */
+    @Scheduled(fixedDelayString = "${spring.web.mail.monitor}", timeUnit = TimeUnit.SECONDS)
+    public void refresh() {
+        try {
+            QueueInformation mail = admin.getQueueInfo(Const.MQ_MAIL);
+            if(mail != null) {
+                this.depth = mail.getMessageCount();
+                this.consumers = mail.getConsumerCount();
+            }
+            long sum = 0;
+            for (int attempt = 1; attempt < maxAttempts; attempt++)
+                sum += this.messageCount(Const.MQ_MAIL_RETRY + attempt);
+            this.retrying = sum;
+            this.dead = this.messageCount(Const.MQ_MAIL_DLQ);
+        } catch (RuntimeException e) {
+            log.warn("查询邮件队列状态失败: {}", e.getMessage());
+        }
+        Timer timer = registry.find("mail.consumer.lag").timer();
+        double lag = timer == null ? 0 : timer.max(TimeUnit.SECONDS);
+        boolean current = depth > maxDepth || lag > maxLag;
+        if(current != saturated)
+            log.warn(current ? "邮件队列已饱和，积压 {} 封，消费延迟 {} 秒，暂停接受验证码请求"
+                    : "邮件队列恢复正常，积压 {} 封，消费延迟 {} 秒", depth, lag);
+        this.saturated = current;
+    }
+
+    private long messageCount(String queue) {
+        QueueInformation info = admin.getQueueInfo(queue);
+        return info == null ? 0 : info.getMessageCount();
+    }
+
+    /**
+     * 邮件队列饱和时抛出的异常
+     */
+    public static class SaturatedException extends RuntimeException {
+        //建议客户端重试的等待时间，秒为单位
+        private final int retryAfter;
+
+        public SaturatedException(int retryAfter) {
+            super("邮件服务繁忙，请稍后再试");
+            this.retryAfter = retryAfter;
+        }
+
+        public int getRetryAfter() {
+            return retryAfter;
+        }
+    }
+}
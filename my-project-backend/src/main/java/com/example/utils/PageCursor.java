@@ -0,0 +1,84 @@
+package com.example.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import jakarta.validation.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 基于 (排序时间列, id) 的分页游标，记录上一页最后一条数据的位置，默认的排序时间列为 created_at
+ * 下一页通过排序列与 id 的组合条件直接定位，配合 (..., 排序列, id) 联合索引，
+ * 无论翻到第几页都只扫描一页的数据，不会像 OFFSET 一样随页数增加而变慢
+ * 游标对客户端不透明，客户端只需原样传回
+ * @param time 上一页最后一条数据排序列的值
+ * @param id 上一页最后一条数据的ID
+ */
+public record PageCursor(Date time, int id) {
+
+    /**
+     * 将游标编码为URL安全的字符串
+     * @return 游标字符串
+     */
+    public String encode() {
+        String raw = time.getTime() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析客户端传回的游标
+     * @param cursor 游标字符串，为空表示第一页
+     * @return 游标，第一页为null
+     * @throws ValidationException 游标格式错误
+     */
+    public static PageCursor decode(String cursor) {
+        if(cursor == null || cursor.isEmpty()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.indexOf(':');
+            return new PageCursor(new Date(Long.parseLong(raw.substring(0, index))),
+                    Integer.parseInt(raw.substring(index + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Invalid page cursor: " + cursor);
+        }
+    }
+
+    /**
+     * 为查询添加游标条件与排序，按创建时间与ID倒序，多查询一条用于判断是否还有下一页
+     * @param wrapper 查询条件，需要已经包含联合索引中位于 created_at 之前的等值条件
+     * @param cursor 游标，第一页为null
+     * @param size 每页数量
+     * @param <T> 实体类型
+     */
+    public static <T> void apply(QueryWrapper<T> wrapper, PageCursor cursor, int size) {
+        apply(wrapper, cursor, size, "created_at", false);
+    }
+
+    /**
+     * 为查询添加游标条件与排序，按指定的时间列与ID排序，多查询一条用于判断是否还有下一页
+     * @param wrapper 查询条件，需要已经包含联合索引中位于排序列之前的等值条件
+     * @param cursor 游标，第一页为null
+     * @param size 每页数量
+     * @param column 排序列，该列不能为空
+     * @param ascending 是否升序
+     * @param <T> 实体类型
+     */
+    public static <T> void apply(QueryWrapper<T> wrapper, PageCursor cursor, int size, String column, boolean ascending) {
+        if(cursor != null) {
+            if(ascending) {
+                wrapper.and(w -> w.gt(column, cursor.time())
+                        .or(o -> o.eq(column, cursor.time()).gt("id", cursor.id())));
+            } else {
+                wrapper.and(w -> w.lt(column, cursor.time())
+                        .or(o -> o.eq(column, cursor.time()).lt("id", cursor.id())));
+            }
+        }
+        if(ascending) {
+            wrapper.orderByAsc(column, "id");
+        } else {
+            wrapper.orderByDesc(column, "id");
+        }
+        wrapper.last("LIMIT " + (size + 1));
+    }
+}
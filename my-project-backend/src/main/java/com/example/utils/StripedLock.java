@@ -0,0 +1,58 @@
+package com.example.utils;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 分段锁表，按键的哈希值映射到固定数量的锁上
+ * 相比对字符串调用intern后加锁，内存占用固定，不会随请求IP、邮箱等键的数量增长，
+ * 不同的键只有落到同一分段时才会互相等待，分段数量越多冲突越少
+ */
+public class StripedLock {
+
+    private final Lock[] locks;
+    private final int mask;
+
+    public StripedLock(int stripes) {
+        if(stripes <= 0)
+            throw new IllegalArgumentException("Stripes must be greater than 0");
+        int size = Integer.highestOneBit(stripes - 1) << 1;
+        if(size <= 0) size = 1;
+        this.locks = new Lock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++)
+            locks[i] = new ReentrantLock();
+    }
+
+    /**
+     * 获取键对应的锁
+     * @param key 键
+     * @return 锁
+     */
+    public Lock get(Object key) {
+        int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    /**
+     * 持有键对应的锁执行操作
+     * @param key 键
+     * @param action 操作
+     * @return 操作结果
+     * @param <T> 结果类型
+     */
+    public <T> T execute(Object key, Supplier<T> action) {
+        Lock lock = this.get(key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int stripes() {
+        return locks.length;
+    }
+}
@@ -0,0 +1,41 @@
+-- Materialized path for the task hierarchy: path lists every ancestor id and the task's own id, e.g. /1/5/23/
+ALTER TABLE `task`
+  ADD COLUMN `path` varchar(1000) CHARACTER SET ascii NOT NULL DEFAULT '' COMMENT '层级路径，由根任务到当前任务的ID组成，例如 /1/5/23/' AFTER `parent_id`,
+  ADD COLUMN `depth` int NOT NULL DEFAULT 0 COMMENT '层级深度，顶层任务为0' AFTER `path`;
+
+-- Earlier versions accepted any parent_id, so parent links may form cycles (including a task that is its own parent)
+-- Walk up from every task that has a same-user parent, a task that reaches itself is a cycle member and becomes a top level task
+UPDATE `task` t
+JOIN (
+  WITH RECURSIVE up (start_id, user_id, id, steps) AS (
+    SELECT c.id, c.user_id, c.parent_id, 1
+    FROM `task` c
+    JOIN `task` p ON p.id = c.parent_id AND p.user_id = c.user_id
+    UNION ALL
+    SELECT up.start_id, up.user_id, p.parent_id, up.steps + 1
+    FROM up
+    JOIN `task` p ON p.id = up.id AND p.user_id = up.user_id
+    WHERE up.id <> up.start_id AND p.parent_id IS NOT NULL AND up.steps < 999
+  )
+  SELECT DISTINCT start_id FROM up WHERE id = start_id
+) cyc ON cyc.start_id = t.id
+SET t.parent_id = NULL, t.updated_at = t.updated_at;
+
+-- Backfill existing rows, tasks whose parent is missing or belongs to another user become top level tasks
+UPDATE `task` t
+JOIN (
+  WITH RECURSIVE tree (id, user_id, path, depth) AS (
+    SELECT r.id, r.user_id, CAST(CONCAT('/', r.id, '/') AS CHAR(1000)), 0
+    FROM `task` r
+    LEFT JOIN `task` p ON p.id = r.parent_id AND p.user_id = r.user_id
+    WHERE p.id IS NULL
+    UNION
+    SELECT c.id, c.user_id, CONCAT(tree.path, c.id, '/'), tree.depth + 1
+    FROM `task` c
+    JOIN tree ON c.parent_id = tree.id AND c.user_id = tree.user_id
+  )
+  SELECT id, path, depth FROM tree
+) h ON h.id = t.id
+SET t.path = h.path, t.depth = h.depth, t.updated_at = t.updated_at;
+
+ALTER TABLE `task` ADD KEY `idx_user_path` (`user_id`, `path`);
@@ -0,0 +1,11 @@
+-- Composite indexes for keyset pagination on (created_at, id), newest first
+-- Each list query filters by equality on the leading columns and seeks past the cursor, so deep pages cost the same as the first page
+ALTER TABLE `task`
+  ADD KEY `idx_user_created` (`user_id`, `created_at`, `id`),
+  DROP KEY `idx_user_id`;
+
+ALTER TABLE `task_log`
+  ADD KEY `idx_user_created` (`user_id`, `created_at`, `id`),
+  ADD KEY `idx_task_user_created` (`task_id`, `user_id`, `created_at`, `id`),
+  DROP KEY `idx_user_id`,
+  DROP KEY `idx_task_id`;
@@ -0,0 +1,7 @@
+-- Composite indexes backing the filtered task list, every filter combination starts with an equality on user_id
+ALTER TABLE `task`
+  ADD KEY `idx_user_status_due` (`user_id`, `status`, `due_date`),
+  ADD KEY `idx_user_priority_due` (`user_id`, `priority`, `due_date`),
+  ADD KEY `idx_user_parent_created` (`user_id`, `parent_id`, `created_at`, `id`),
+  ADD KEY `idx_user_due` (`user_id`, `due_date`, `id`),
+  DROP KEY `idx_status`;
@@ -0,0 +1,3 @@
+-- Full-text index over task title and description, the ngram parser tokenizes Chinese text that has no word separators
+-- InnoDB keeps the index up to date within the same transaction as every insert, update and delete on task
+ALTER TABLE `task` ADD FULLTEXT KEY `ft_title_description` (`title`, `description`) WITH PARSER ngram;
@@ -0,0 +1,5 @@
+-- Composite indexes for the default created_at sort combined with a status or priority filter
+-- The equality on the filter column is followed by (created_at, id), so the page is read in index order without a filesort
+ALTER TABLE `task`
+  ADD KEY `idx_user_status_created` (`user_id`, `status`, `created_at`, `id`),
+  ADD KEY `idx_user_priority_created` (`user_id`, `priority`, `created_at`, `id`);
@@ -0,0 +1,204 @@
+package com.example.listener;
+
+import com.example.config.RabbitConfiguration;
+import com.example.entity.MailCommand;
+import com.example.mapper.AccountMapper;
+import com.example.service.impl.AccountServiceImpl;
+import com.example.utils.FlowAlgorithm;
+import com.example.utils.FlowUtils;
+import com.example.utils.LockUtils;
+import com.example.utils.MailQueueMonitor;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.Mockito;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 邮件验证码全链路吞吐量基准测试，默认不执行，通过 -Dbenchmark=true 开启
+ * 请求验证码 -> 消息队列 -> 邮件监听器 -> SMTP，消息队列与SMTP服务都由进程内的替身实现，
+ * 按设定的速率发起请求，输出各阶段以及端到端耗时的分位数
+ * 可选参数：benchmark.rates 请求速率列表（每秒），benchmark.seconds 每轮持续秒数，
+ * benchmark.consumers 消费者数量，benchmark.batch 批次大小，benchmark.smtp-delay 每封邮件的SMTP处理延迟（毫秒）
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MailPipelineBenchmarkTests {
+
+    private static final String HEADER_EMAIL = "x-benchmark-email";
+
+    private final MessageConverter converter = new RabbitConfiguration().messageConverter();
+
+    @Test
+    void mailPipelineThroughput() throws Exception {
+        int seconds = Integer.getInteger("benchmark.seconds", 5);
+        int consumers = Integer.getInteger("benchmark.consumers", 2);
+        int batch = Integer.getInteger("benchmark.batch", 20);
+        long smtpDelay = Long.getLong("benchmark.smtp-delay", 0L);
+        System.out.printf("consumers=%d batch=%d smtp-delay=%dms%n", consumers, batch, smtpDelay);
+        for (String rate : System.getProperty("benchmark.rates", "50,200,500").split(","))
+            this.run(Integer.parseInt(rate.strip()), seconds, consumers, batch, smtpDelay);
+    }
+
+    private void run(int rate, int seconds, int consumers, int batch, long smtpDelay) throws Exception {
+        int total = rate * seconds;
+        Map<String, long[]> timings = new ConcurrentHashMap<>();
+        AtomicInteger delivered = new AtomicInteger();
+        BlockingQueue<Message> broker = new LinkedBlockingQueue<>();
+        ExecutorService workers = Executors.newFixedThreadPool(16);
+        ExecutorService consumerPool = Executors.newFixedThreadPool(consumers);
+        try (SmtpStandIn smtp = new SmtpStandIn(smtpDelay, recipient -> {
+            long[] timing = timings.get(recipient);
+            if(timing != null) {
+                timing[3] = System.nanoTime();
+                delivered.incrementAndGet();
+            }
+        })) {
+            AccountServiceImpl service = this.service(broker, timings);
+            MailQueueListener listener = this.listener(smtp);
+            for (int i = 0; i < consumers; i++)
+                consumerPool.execute(() -> this.consume(broker, listener, timings, batch));
+            long start = System.nanoTime();
+            long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+            for (int i = 0; i < total; i++) {
+                long intended = start + i * interval;
+                LockSupport.parkNanos(intended - System.nanoTime());
+                String email = "user-" + rate + "-" + i + "@example.com";
+                long[] timing = new long[]{ intended, 0, 0, 0 };
+                timings.put(email, timing);
+                workers.execute(() -> service.registerEmailVerifyCode("register", email, "127.0.0.1"));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds * 10L + 30);
+            while (delivered.get() < total && System.nanoTime() < deadline)
+                Thread.sleep(10);
+            long elapsed = System.nanoTime() - start;
+            Assertions.assertEquals(total, delivered.get(), "not all mails were delivered before the deadline");
+            this.report(rate, total, elapsed, timings.values(), smtp.connections.get());
+        } finally {
+            workers.shutdownNow();
+            consumerPool.shutdownNow();
+        }
+    }
+
+    /**
+     * 消息队列替身的消费者，按批次大小或等待超时凑成一批后交给邮件监听器
+     */
+    private void consume(BlockingQueue<Message> broker, MailQueueListener listener,
+                         Map<String, long[]> timings, int batch) {
+        Channel channel = Mockito.mock(Channel.class);
+        List<Message> messages = new ArrayList<>(batch);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Message first = broker.poll(100, TimeUnit.MILLISECONDS);
+                if(first == null) continue;
+                messages.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+                while (messages.size() < batch) {
+                    Message next = broker.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if(next == null) break;
+                    messages.add(next);
+                }
+                long now = System.nanoTime();
+                for (Message message : messages)
+                    timings.get((String) message.getMessageProperties().getHeader(HEADER_EMAIL))[2] = now;
+                listener.sendMailMessages(messages, channel);
+                messages.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void report(int rate, int total, long elapsed, Collection<long[]> timings, int connections) {
+        System.out.printf("%n[rate %d/s] %d mails in %.2fs, %.1f mails/s, %d smtp connections%n",
+                rate, total, elapsed / 1e9, total / (elapsed / 1e9), connections);
+        System.out.printf("%-12s %10s %10s %10s %10s%n", "stage(ms)", "p50", "p95", "p99", "max");
+        this.printStage("ask-code", timings, 0, 1);
+        this.printStage("queue", timings, 1, 2);
+        this.printStage("smtp", timings, 2, 3);
+        this.printStage("end-to-end", timings, 0, 3);
+    }
+
+    private void printStage(String name, Collection<long[]> timings, int from, int to) {
+        double[] values = timings.stream()
+                .mapToDouble(timing -> Math.max(timing[to] - timing[from], 0) / 1e6)
+                .sorted()
+                .toArray();
+        System.out.printf("%-12s %10.2f %10.2f %10.2f %10.2f%n", name,
+                percentile(values, 0.5), percentile(values, 0.95), percentile(values, 0.99), values[values.length - 1]);
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    /**
+     * 请求验证码的服务，数据库与Redis使用替身，发布的消息进入消息队列替身并记录发布时间
+     */
+    @SuppressWarnings("unchecked")
+    private AccountServiceImpl service(BlockingQueue<Message> broker, Map<String, long[]> timings) {
+        AmqpTemplate amqp = Mockito.mock(AmqpTemplate.class);
+        Mockito.doAnswer(invocation -> {
+            MailCommand command = invocation.getArgument(1);
+            MessagePostProcessor processor = invocation.getArgument(2);
+            Message message = processor.postProcessMessage(converter.toMessage(command, new MessageProperties()));
+            message.getMessageProperties().setHeader(HEADER_EMAIL, command.email());
+            timings.get(command.email())[1] = System.nanoTime();
+            broker.add(message);
+            return null;
+        }).when(amqp).convertAndSend(Mockito.anyString(), Mockito.any(Object.class), Mockito.any(MessagePostProcessor.class));
+        StringRedisTemplate redis = Mockito.mock(StringRedisTemplate.class);
+        ValueOperations<String, String> operations = Mockito.mock(ValueOperations.class);
+        Mockito.when(redis.opsForValue()).thenReturn(operations);
+        Mockito.when(operations.setIfAbsent(Mockito.anyString(), Mockito.anyString(), Mockito.anyLong(), Mockito.any(TimeUnit.class)))
+                .thenReturn(true);
+        FlowUtils flow = Mockito.mock(FlowUtils.class);
+        Mockito.when(flow.limitOnceCheck(Mockito.anyString(), Mockito.anyInt())).thenReturn(true);
+        LockUtils lock = new LockUtils();
+        ReflectionTestUtils.setField(lock, "stripes", 256);
+        lock.init();
+
+        AccountServiceImpl service = new AccountServiceImpl();
+        ReflectionTestUtils.setField(service, "baseMapper", Mockito.mock(AccountMapper.class));
+        ReflectionTestUtils.setField(service, "rabbitTemplate", amqp);
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(service, "flow", flow);
+        ReflectionTestUtils.setField(service, "lock", lock);
+        ReflectionTestUtils.setField(service, "mailMonitor", Mockito.mock(MailQueueMonitor.class));
+        ReflectionTestUtils.setField(service, "verifyAlgorithm", FlowAlgorithm.FIXED_WINDOW);
+        ReflectionTestUtils.setField(service, "verifyLimit", 60);
+        return service;
+    }
+
+    private MailQueueListener listener(SmtpStandIn smtp) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(smtp.port());
+        MailQueueListener listener = new MailQueueListener();
+        listener.sender = sender;
+        listener.username = "noreply@example.com";
+        listener.converter = converter;
+        listener.rabbitTemplate = Mockito.mock(AmqpTemplate.class);
+        listener.registry = new SimpleMeterRegistry();
+        listener.template = Mockito.mock(StringRedisTemplate.class);
+        listener.maxAttempts = 4;
+        listener.init();
+        return listener;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.listener;
+
+import com.example.config.RabbitConfiguration;
+import com.example.entity.MailCommand;
+import com.example.utils.Const;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class MailQueueListenerTests {
+
+    private final MessageConverter converter = new RabbitConfiguration().messageConverter();
+
+    @Test
+    void batchReusesOneConnectionAndAcksEachMessage() throws Exception {
+        try (SmtpStandIn smtp = new SmtpStandIn()) {
+            MailQueueListener listener = this.listener(smtp);
+            Channel channel = Mockito.mock(Channel.class);
+            int total = 200, batch = 20;
+            for (int i = 0; i < total; i += batch) {
+                List<Message> messages = new ArrayList<>();
+                for (int j = i; j < i + batch; j++)
+                    messages.add(this.message(j, "user" + j + "@example.com"));
+                listener.sendMailMessages(messages, channel);
+            }
+            Assertions.assertEquals(total, smtp.delivered.get());
+            Assertions.assertEquals(total / batch, smtp.connections.get());
+            for (int i = 0; i < total; i++)
+                Mockito.verify(channel).basicAck(i, false);
+            Mockito.verify(channel, Mockito.never()).basicNack(Mockito.anyLong(), Mockito.anyBoolean(), Mockito.anyBoolean());
+        }
+    }
+
+    @Test
+    void partialFailureRetriesOnlyFailedMessages() throws Exception {
+        try (SmtpStandIn smtp = new SmtpStandIn()) {
+            MailQueueListener listener = this.listener(smtp);
+            Channel channel = Mockito.mock(Channel.class);
+            listener.sendMailMessages(List.of(
+                    this.message(1, "first@example.com"),
+                    this.message(2, "reject@example.com"),
+                    this.message(3, "third@example.com")
+            ), channel);
+            Assertions.assertEquals(2, smtp.delivered.get());
+            for (int i = 1; i <= 3; i++)
+                Mockito.verify(channel).basicAck(i, false);
+            Mockito.verify(listener.template).delete(Const.VERIFY_EMAIL_PENDING + "register:first@example.com");
+            Mockito.verify(listener.template, Mockito.never()).delete(Const.VERIFY_EMAIL_PENDING + "register:reject@example.com");
+            Mockito.verify(listener.rabbitTemplate).send(Mockito.eq(""), Mockito.eq(Const.MQ_MAIL_RETRY + 1),
+                    Mockito.argThat(message -> message.getMessageProperties().getDeliveryTag() == 2));
+        }
+    }
+
+    @Test
+    void exhaustedRetriesGoToDeadLetterQueue() throws Exception {
+        try (SmtpStandIn smtp = new SmtpStandIn()) {
+            MailQueueListener listener = this.listener(smtp);
+            Channel channel = Mockito.mock(Channel.class);
+            Message message = this.message(1, "reject@example.com");
+            message.getMessageProperties().setHeader(Const.MQ_HEADER_RETRY, listener.maxAttempts - 1);
+            listener.sendMailMessages(List.of(message), channel);
+            Mockito.verify(channel).basicAck(1, false);
+            Mockito.verify(listener.rabbitTemplate).send(Const.MQ_MAIL_DLX, Const.MQ_MAIL, message);
+        }
+    }
+
+    @Test
+    void closeFailureAfterSendingDoesNotResendBatch() throws Exception {
+        try (SmtpStandIn smtp = new SmtpStandIn()) {
+            MailQueueListener listener = this.listener(smtp);
+            listener.sender = Mockito.mock(JavaMailSender.class);
+            Mockito.doThrow(new MailSendException("Failed to close server connection after message sending",
+                            new MessagingException("QUIT failed")))
+                    .when(listener.sender).send(Mockito.any(SimpleMailMessage[].class));
+            Channel channel = Mockito.mock(Channel.class);
+            listener.sendMailMessages(List.of(
+                    this.message(1, "first@example.com"),
+                    this.message(2, "second@example.com")
+            ), channel);
+            for (int i = 1; i <= 2; i++)
+                Mockito.verify(channel).basicAck(i, false);
+            Mockito.verify(listener.template).delete(Const.VERIFY_EMAIL_PENDING + "register:first@example.com");
+            Mockito.verify(listener.template).delete(Const.VERIFY_EMAIL_PENDING + "register:second@example.com");
+            Mockito.verifyNoInteractions(listener.rabbitTemplate);
+        }
+    }
+
+    @Test
+    void failedRepublishIsRequeuedAndOthersStillAcked() throws Exception {
+        try (SmtpStandIn smtp = new SmtpStandIn()) {
+            MailQueueListener listener = this.listener(smtp);
+            Mockito.doThrow(new AmqpException("broker unavailable"))
+                    .when(listener.rabbitTemplate).send(Mockito.anyString(), Mockito.anyString(), Mockito.any(Message.class));
+            Channel channel = Mockito.mock(Channel.class);
+            listener.sendMailMessages(List.of(
+                    this.message(1, "first@example.com"),
+                    this.message(2, "reject@example.com"),
+                    this.message(3, "third@example.com")
+            ), channel);
+            Mockito.verify(channel).basicAck(1, false);
+            Mockito.verify(channel).basicAck(3, false);
+            Mockito.verify(channel).basicNack(2, false, true);
+            Mockito.verify(channel, Mockito.never()).basicAck(2, false);
+        }
+    }
+
+    private MailQueueListener listener(SmtpStandIn smtp) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(smtp.port());
+        MailQueueListener listener = new MailQueueListener();
+        listener.sender = sender;
+        listener.username = "noreply@example.com";
+        listener.converter = converter;
+        listener.rabbitTemplate = Mockito.mock(AmqpTemplate.class);
+        listener.registry = new SimpleMeterRegistry();
+        listener.template = Mockito.mock(StringRedisTemplate.class);
+        listener.maxAttempts = 4;
+        listener.init();
+        return listener;
+    }
+
+    @Test
+    void legacyMapPayloadIsStillAccepted() throws Exception {
+        try (SmtpStandIn smtp = new SmtpStandIn()) {
+            MailQueueListener listener = this.listener(smtp);
+            Channel channel = Mockito.mock(Channel.class);
+            MessageProperties properties = new MessageProperties();
+            properties.setDeliveryTag(1);
+            Map<String, Object> data = new HashMap<>(Map.of("type", "reset", "email", "legacy@example.com", "code", 123456));
+            listener.sendMailMessages(List.of(new SimpleMessageConverter().toMessage(data, properties)), channel);
+            Assertions.assertEquals(1, smtp.delivered.get());
+            Mockito.verify(channel).basicAck(1, false);
+        }
+    }
+
+    private Message message(long tag, String email) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(tag);
+        return converter.toMessage(MailCommand.of("register", email, 123456), properties);
+    }
+}
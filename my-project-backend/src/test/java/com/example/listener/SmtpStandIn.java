@@ -0,0 +1,121 @@
+package com.example.listener;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 测试用的本地SMTP服务，只实现发送邮件所需的最少命令，收件人地址包含reject时拒绝该收件人
+ * 每个连接使用独立线程处理，可以模拟每封邮件的服务端处理延迟
+ */
+class SmtpStandIn implements Closeable {
+
+    private final ServerSocket server;
+    private final Thread thread;
+    final AtomicInteger connections = new AtomicInteger();
+    final AtomicInteger delivered = new AtomicInteger();
+    //每封邮件接收完成后的额外延迟，毫秒为单位
+    private final long delay;
+    //每封邮件接收完成后以收件人地址回调
+    private final Consumer<String> onDelivered;
+
+    SmtpStandIn() throws IOException {
+        this(0, recipient -> {});
+    }
+
+    SmtpStandIn(long delay, Consumer<String> onDelivered) throws IOException {
+        this.delay = delay;
+        this.onDelivered = onDelivered;
+        this.server = new ServerSocket(0);
+        this.thread = new Thread(this::serve, "smtp-stand-in");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    int port() {
+        return server.getLocalPort();
+    }
+
+    private void serve() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                connections.incrementAndGet();
+                Thread session = new Thread(() -> {
+                    try (socket) {
+                        this.session(socket);
+                    } catch (IOException ignored) {
+                    }
+                }, "smtp-stand-in-session");
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void session(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        reply(writer, "220 localhost SMTP stand-in");
+        List<String> recipients = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+            switch (command) {
+                case "EHLO", "HELO" -> reply(writer, "250 localhost");
+                case "MAIL" -> {
+                    recipients.clear();
+                    reply(writer, "250 OK");
+                }
+                case "RCPT" -> {
+                    if(line.contains("reject")) {
+                        reply(writer, "550 mailbox unavailable");
+                    } else {
+                        recipients.add(line.substring(line.indexOf('<') + 1, line.lastIndexOf('>')));
+                        reply(writer, "250 OK");
+                    }
+                }
+                case "DATA" -> {
+                    reply(writer, "354 end with <CRLF>.<CRLF>");
+                    while ((line = reader.readLine()) != null && !line.equals(".")) {
+                        //忽略邮件内容
+                    }
+                    this.pause();
+                    delivered.incrementAndGet();
+                    recipients.forEach(onDelivered);
+                    reply(writer, "250 OK");
+                }
+                case "QUIT" -> {
+                    reply(writer, "221 bye");
+                    return;
+                }
+                default -> reply(writer, "250 OK");
+            }
+        }
+    }
+
+    private void pause() {
+        if(delay <= 0) return;
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void reply(Writer writer, String line) throws IOException {
+        writer.write(line + "\r\n");
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.mapper;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.example.entity.dto.Task;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 仅用于测试的Mapper，查看查询条件生成的SQL的执行计划
+ */
+@Mapper
+public interface ExplainMapper {
+
+    @Select("EXPLAIN SELECT * FROM task ${ew.customSqlSegment}")
+    List<Map<String, Object>> explainTask(@Param(Constants.WRAPPER) Wrapper<Task> wrapper);
+
+    @Select("ANALYZE TABLE task")
+    List<Map<String, Object>> analyzeTask();
+}
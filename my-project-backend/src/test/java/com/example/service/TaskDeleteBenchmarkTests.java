@@ -0,0 +1,119 @@
+package com.example.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.example.entity.dto.Task;
+import com.example.entity.dto.TaskLog;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.*;
+
+/**
+ * 删除任务子树的基准测试，需要可用的数据库，默认不执行，通过 -Dbenchmark=true 开启
+ * 在同一规模的任务树上分别测量逐个节点递归删除与按层级路径前缀删除的耗时
+ * 可选参数：benchmark.tree-size 任务树节点数量，benchmark.fanout 每个任务的子任务数量
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TaskDeleteBenchmarkTests {
+
+    //基准测试专用的用户ID，避免影响真实数据
+    private static final int USER_ID = Integer.MAX_VALUE - 1;
+
+    @Resource
+    TaskService service;
+
+    @Resource
+    TaskLogService logService;
+
+    @Test
+    void deleteLargeSubtree() {
+        int size = Integer.getInteger("benchmark.tree-size", 10000);
+        int fanout = Integer.getInteger("benchmark.fanout", 10);
+
+        int root = this.buildTree(size, fanout);
+        long start = System.nanoTime();
+        this.deleteRecursively(root);
+        long recursive = System.nanoTime() - start;
+        Assertions.assertEquals(0, this.remaining());
+
+        root = this.buildTree(size, fanout);
+        start = System.nanoTime();
+        Assertions.assertNull(service.deleteTask(USER_ID, root));
+        long subtree = System.nanoTime() - start;
+        Assertions.assertEquals(0, this.remaining());
+        Assertions.assertEquals(1, logService.getTaskLogs(USER_ID, root, null, 10).list().size());
+
+        System.out.printf("%d tasks, fanout %d: recursive %.1fms, subtree %.1fms%n",
+                size, fanout, recursive / 1e6, subtree / 1e6);
+    }
+
+    @AfterEach
+    void cleanup() {
+        service.remove(new QueryWrapper<Task>().eq("user_id", USER_ID));
+        logService.remove(new QueryWrapper<TaskLog>().eq("user_id", USER_ID));
+    }
+
+    /**
+     * 按层批量插入一棵指定规模的任务树
+     * @return 根任务ID
+     */
+    private int buildTree(int size, int fanout) {
+        Task root = this.task(null, "root");
+        service.save(root);
+        root.setPath("/" + root.getId() + "/");
+        service.update().eq("id", root.getId()).set("path", root.getPath()).update();
+        int created = 1;
+        List<Task> level = List.of(root);
+        while (created < size) {
+            List<Task> next = new ArrayList<>();
+            for (Task parent : level) {
+                for (int i = 0; i < fanout && created < size; i++, created++)
+                    next.add(this.task(parent, "task-" + created));
+            }
+            service.saveBatch(next, 1000);
+            for (Task parent : level) {
+                service.update()
+                        .eq("user_id", USER_ID)
+                        .eq("parent_id", parent.getId())
+                        .setSql("path = CONCAT('" + parent.getPath() + "', id, '/')")
+                        .update();
+            }
+            Map<Integer, String> paths = new HashMap<>();
+            level.forEach(parent -> paths.put(parent.getId(), parent.getPath()));
+            next.forEach(task -> task.setPath(paths.get(task.getParentId()) + task.getId() + "/"));
+            level = next;
+        }
+        return root.getId();
+    }
+
+    /**
+     * 原有的逐个节点递归删除方式，作为对照
+     */
+    private void deleteRecursively(int taskId) {
+        for (Task child : service.getSubTasks(USER_ID, taskId))
+            this.deleteRecursively(child.getId());
+        service.removeById(taskId);
+    }
+
+    private long remaining() {
+        return service.count(new QueryWrapper<Task>().eq("user_id", USER_ID));
+    }
+
+    private Task task(Task parent, String title) {
+        Task task = new Task();
+        task.setUserId(USER_ID);
+        task.setTitle(title);
+        task.setStatus("pending");
+        task.setPriority("medium");
+        task.setParentId(parent == null ? null : parent.getId());
+        task.setDepth(parent == null ? 0 : parent.getDepth() + 1);
+        task.setCreatedAt(new Date());
+        task.setUpdatedAt(new Date());
+        return task;
+    }
+}
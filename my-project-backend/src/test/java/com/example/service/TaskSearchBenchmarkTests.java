@@ -0,0 +1,91 @@
+package com.example.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.example.entity.dto.Task;
+import com.example.entity.vo.response.PageVO;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.*;
+
+/**
+ * 任务全文搜索的基准测试，需要可用的数据库，默认不执行，通过 -Dbenchmark=true 开启
+ * 为单个用户生成大量中英文混合的任务后随机搜索，输出搜索耗时的分位数
+ * 可选参数：benchmark.tasks 任务数量，benchmark.searches 搜索次数
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TaskSearchBenchmarkTests {
+
+    //基准测试专用的用户ID，避免影响真实数据
+    private static final int USER_ID = Integer.MAX_VALUE - 2;
+
+    private static final String[] WORDS = {
+            "需求评审", "接口联调", "性能优化", "数据库迁移", "前端重构", "发布上线", "缺陷修复", "单元测试",
+            "文档整理", "安全审计", "日志分析", "缓存设计", "report", "deploy", "refactor", "release",
+            "invoice", "meeting", "backup", "migration", "dashboard", "payment", "search", "monitor"
+    };
+
+    @Resource
+    TaskService service;
+
+    @Test
+    void searchLatency() {
+        int total = Integer.getInteger("benchmark.tasks", 100000);
+        int searches = Integer.getInteger("benchmark.searches", 200);
+        Random random = new Random(42);
+
+        List<Task> batch = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            Task task = new Task();
+            task.setUserId(USER_ID);
+            task.setTitle(this.sentence(random, 3) + " #" + i);
+            task.setDescription(this.sentence(random, 12));
+            task.setStatus("pending");
+            task.setPriority("medium");
+            task.setCreatedAt(new Date());
+            task.setUpdatedAt(new Date());
+            batch.add(task);
+            if (batch.size() == 1000) {
+                service.saveBatch(batch, 1000);
+                batch.clear();
+            }
+        }
+        service.saveBatch(batch, 1000);
+
+        long[] latencies = new long[searches];
+        for (int i = 0; i < searches; i++) {
+            String keyword = i % 2 == 0
+                    ? WORDS[random.nextInt(WORDS.length)]
+                    : WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            long start = System.nanoTime();
+            PageVO<Task> page = service.searchTasks(USER_ID, keyword, 1, 20);
+            latencies[i] = System.nanoTime() - start;
+            Assertions.assertFalse(page.list().isEmpty(), keyword);
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%d tasks, %d searches: p50 %.2fms, p95 %.2fms, p99 %.2fms, max %.2fms%n",
+                total, searches, this.percentile(latencies, 0.5), this.percentile(latencies, 0.95),
+                this.percentile(latencies, 0.99), latencies[searches - 1] / 1e6);
+    }
+
+    @AfterEach
+    void cleanup() {
+        service.remove(new QueryWrapper<Task>().eq("user_id", USER_ID));
+    }
+
+    private String sentence(Random random, int words) {
+        StringJoiner joiner = new StringJoiner(" ");
+        for (int i = 0; i < words; i++)
+            joiner.add(WORDS[random.nextInt(WORDS.length)]);
+        return joiner.toString();
+    }
+
+    private double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+}
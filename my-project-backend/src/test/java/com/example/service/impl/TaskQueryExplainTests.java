@@ -0,0 +1,154 @@
+package com.example.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.example.entity.dto.Task;
+import com.example.entity.vo.request.TaskQueryVO;
+import com.example.mapper.ExplainMapper;
+import com.example.service.TaskService;
+import com.example.utils.PageCursor;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.*;
+
+/**
+ * 检查任务列表的各种筛选与排序组合都能使用索引，执行计划中不允许出现全表扫描、全索引扫描或额外排序
+ * 测试数据分布在多个用户之间，使单个用户的数据只占表中的一小部分，与真实的数据分布接近
+ * 与 MyProjectBackendApplicationTests 一样使用配置中的数据库，作为常规测试随 mvn test 执行，索引回退时构建直接失败
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TaskQueryExplainTests {
+
+    //测试专用的用户ID范围，避免影响真实数据
+    private static final int FIRST_USER = Integer.MAX_VALUE - 100;
+    private static final int USERS = 20;
+    private static final int TASKS_PER_USER = 200;
+
+    private static final List<String> STATUS = List.of("pending", "in_progress", "completed", "cancelled");
+    private static final List<String> PRIORITY = List.of("low", "medium", "high", "urgent");
+
+    @Resource
+    TaskService service;
+
+    @Resource
+    ExplainMapper explain;
+
+    @BeforeAll
+    void seed() {
+        long now = System.currentTimeMillis();
+        List<Task> tasks = new ArrayList<>();
+        for (int user = FIRST_USER; user < FIRST_USER + USERS; user++) {
+            for (int i = 0; i < TASKS_PER_USER; i++) {
+                Task task = new Task();
+                task.setUserId(user);
+                task.setTitle("explain-" + i);
+                task.setStatus(STATUS.get(i % STATUS.size()));
+                task.setPriority(PRIORITY.get(i / STATUS.size() % PRIORITY.size()));
+                task.setParentId(i < 10 ? null : i % 10);
+                task.setDueDate(i % 3 == 0 ? null : new Date(now + i * 3600_000L));
+                task.setCreatedAt(new Date(now - i * 60_000L));
+                task.setUpdatedAt(new Date());
+                tasks.add(task);
+            }
+        }
+        service.saveBatch(tasks, 1000);
+        explain.analyzeTask();
+    }
+
+    @AfterAll
+    void cleanup() {
+        service.remove(new QueryWrapper<Task>().between("user_id", FIRST_USER, FIRST_USER + USERS - 1));
+    }
+
+    @Test
+    void unfilteredList() {
+        this.assertIndexed(new TaskQueryVO(), null);
+        this.assertIndexed(new TaskQueryVO(), new PageCursor(new Date(), 100));
+    }
+
+    @Test
+    void statusOrPriorityWithCreatedSort() {
+        TaskQueryVO query = new TaskQueryVO();
+        query.setStatus(List.of("completed"));
+        this.assertIndexed(query, null);
+        this.assertIndexed(query, new PageCursor(new Date(), 100));
+        query.setStatus(null);
+        query.setPriority(List.of("low"));
+        this.assertIndexed(query, null);
+        this.assertIndexed(query, new PageCursor(new Date(), 100));
+    }
+
+    @Test
+    void statusAndDueRange() {
+        TaskQueryVO query = new TaskQueryVO();
+        query.setStatus(List.of("pending"));
+        query.setDueAfter(new Date());
+        query.setDueBefore(new Date(System.currentTimeMillis() + 7 * 24 * 3600_000L));
+        this.assertIndexed(query, null);
+        this.assertIndexed(query, new PageCursor(new Date(), 100));
+    }
+
+    @Test
+    void priorityAndDueBefore() {
+        TaskQueryVO query = new TaskQueryVO();
+        query.setPriority(List.of("urgent"));
+        query.setDueBefore(new Date(System.currentTimeMillis() + 24 * 3600_000L));
+        this.assertIndexed(query, null);
+        this.assertIndexed(query, new PageCursor(new Date(), 100));
+    }
+
+    /**
+     * 多个状态或优先级之间没有统一的创建时间顺序，只能在命中的范围内额外排序，这里只检查不会全表扫描
+     */
+    @Test
+    void multipleValuesUseRangeScan() {
+        TaskQueryVO query = new TaskQueryVO();
+        query.setStatus(List.of("pending", "in_progress"));
+        this.assertNoFullScan(query, null);
+        query.setStatus(null);
+        query.setPriority(List.of("high", "urgent"));
+        this.assertNoFullScan(query, new PageCursor(new Date(), 100));
+    }
+
+    @Test
+    void parentFilter() {
+        TaskQueryVO query = new TaskQueryVO();
+        query.setParentId(3);
+        this.assertIndexed(query, null);
+        query.setParentId(0);
+        this.assertIndexed(query, new PageCursor(new Date(), 100));
+    }
+
+    @Test
+    void sortByDueDate() {
+        TaskQueryVO query = new TaskQueryVO();
+        query.setSort("due");
+        this.assertIndexed(query, null);
+        this.assertIndexed(query, new PageCursor(new Date(), 100));
+        query.setStatus(List.of("pending"));
+        this.assertIndexed(query, new PageCursor(new Date(), 100));
+    }
+
+    private void assertIndexed(TaskQueryVO query, PageCursor cursor) {
+        for (Map<String, Object> row : this.assertNoFullScan(query, cursor)) {
+            Assertions.assertFalse(String.valueOf(row.get("Extra")).contains("Using filesort"), String.valueOf(row));
+        }
+    }
+
+    private List<Map<String, Object>> assertNoFullScan(TaskQueryVO query, PageCursor cursor) {
+        QueryWrapper<Task> wrapper = TaskServiceImpl.taskQuery(FIRST_USER, query, cursor, 20);
+        List<Map<String, Object>> rows = explain.explainTask(wrapper);
+        for (Map<String, Object> row : rows) {
+            String plan = wrapper.getCustomSqlSegment() + " -> " + row;
+            Assertions.assertNotNull(row.get("key"), plan);
+            Assertions.assertFalse(Set.of("ALL", "index").contains(String.valueOf(row.get("type"))), plan);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class CidrTrieTests {
+
+    @Test
+    void longestPrefixWins() {
+        IpAccessList list = IpAccessList.parse(List.of(
+                "# 测试名单",
+                "deny 10.0.0.0/8",
+                "allow 10.1.0.0/16",
+                "deny 10.1.2.3",
+                "deny 2001:db8::/32",
+                "allow 2001:db8:1::/48"
+        ));
+        Assertions.assertEquals(5, list.size());
+        Assertions.assertEquals(IpAccessList.Rule.DENY, list.match("10.200.0.1"));
+        Assertions.assertEquals(IpAccessList.Rule.ALLOW, list.match("10.1.9.9"));
+        Assertions.assertEquals(IpAccessList.Rule.DENY, list.match("10.1.2.3"));
+        Assertions.assertNull(list.match("11.0.0.1"));
+        Assertions.assertEquals(IpAccessList.Rule.DENY, list.match("2001:db8:ffff::1"));
+        Assertions.assertEquals(IpAccessList.Rule.ALLOW, list.match("2001:db8:1:2::1"));
+        Assertions.assertNull(list.match("2001:db9::1"));
+        Assertions.assertEquals(IpAccessList.Rule.DENY, list.match("::ffff:10.0.0.1"));
+        Assertions.assertNull(list.match("localhost"));
+    }
+
+    @Test
+    void splitsCompressedPathsInAnyInsertOrder() {
+        CidrTrie<Integer> trie = new CidrTrie<>();
+        trie.put(new byte[]{ (byte) 192, (byte) 168, 1, 0 }, 24, 24);
+        trie.put(new byte[]{ (byte) 192, (byte) 168, 0, 0 }, 16, 16);
+        trie.put(new byte[]{ (byte) 192, (byte) 168, 2, 0 }, 24, 25);
+        trie.put(new byte[]{ 0, 0, 0, 0 }, 0, 0);
+        Assertions.assertEquals(24, trie.match(new byte[]{ (byte) 192, (byte) 168, 1, 7 }));
+        Assertions.assertEquals(25, trie.match(new byte[]{ (byte) 192, (byte) 168, 2, 7 }));
+        Assertions.assertEquals(16, trie.match(new byte[]{ (byte) 192, (byte) 168, 3, 7 }));
+        Assertions.assertEquals(0, trie.match(new byte[]{ 8, 8, 8, 8 }));
+        Assertions.assertEquals(4, trie.size());
+    }
+
+    @Test
+    void rejectsMalformedRules() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IpAccessList.parse(List.of("block 1.2.3.4")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IpAccessList.parse(List.of("deny 1.2.3.4/33")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IpAccessList.parse(List.of("deny example.com")));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.utils;
+
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 各种限流算法在Redis上的开销基准测试，需要可用的Redis，默认不执行，通过 -Dbenchmark=true 开启
+ * 每种算法对一批键依次发起检查，输出客户端单次检查耗时的分位数、服务端每次检查的脚本耗时与执行的命令数，
+ * 以及每个计数键占用的内存，服务端数据来自 INFO commandstats，测试前会重置Redis的统计信息
+ * 可选参数：benchmark.keys 键数量，benchmark.checks 检查次数，benchmark.frequency 请求频率，benchmark.period 计数周期（秒）
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FlowAlgorithmBenchmarkTests {
+
+    private static final String PREFIX = "benchmark:flow:";
+    private static final Set<String> SCRIPT_COMMANDS = Set.of("eval", "evalsha");
+
+    @Resource
+    FlowUtils flow;
+
+    @Resource
+    StringRedisTemplate template;
+
+    @Test
+    void redisCostPerAlgorithm() {
+        int keys = Integer.getInteger("benchmark.keys", 1000);
+        int checks = Integer.getInteger("benchmark.checks", 50_000);
+        int frequency = Integer.getInteger("benchmark.frequency", 20);
+        int period = Integer.getInteger("benchmark.period", 60);
+        System.out.printf("keys=%d checks=%d frequency=%d period=%ds%n", keys, checks, frequency, period);
+        System.out.printf("%-16s %10s %10s %10s %10s %14s %14s %12s%n", "algorithm",
+                "p50(us)", "p95(us)", "p99(us)", "max(us)", "server(us)", "commands", "bytes/key");
+        for (FlowAlgorithm algorithm : FlowAlgorithm.values()) {
+            List<String> counters = new ArrayList<>(keys);
+            for (int i = 0; i < keys; i++)
+                counters.add(PREFIX + algorithm.name().toLowerCase(Locale.ROOT) + ":" + i);
+            try {
+                this.run(algorithm, counters, checks, frequency, period);
+            } finally {
+                template.delete(counters);
+            }
+        }
+    }
+
+    private void run(FlowAlgorithm algorithm, List<String> counters, int checks, int frequency, int period) {
+        template.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().resetConfigStats();
+            return null;
+        });
+        long[] latencies = new long[checks];
+        for (int i = 0; i < checks; i++) {
+            String key = counters.get(i % counters.size());
+            long start = System.nanoTime();
+            flow.limitCheck(algorithm, key, null, 0, frequency, period);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        Map<String, long[]> stats = this.commandStats();
+        long scriptTime = 0, commands = 0;
+        for (Map.Entry<String, long[]> entry : stats.entrySet()) {
+            if(SCRIPT_COMMANDS.contains(entry.getKey())) {
+                scriptTime += entry.getValue()[1];
+            } else if(!entry.getKey().startsWith("config") && !entry.getKey().equals("info")) {
+                commands += entry.getValue()[0];
+            }
+        }
+        long memory = 0;
+        for (String key : counters)
+            memory += this.memoryUsage(key);
+        System.out.printf("%-16s %10.2f %10.2f %10.2f %10.2f %14.2f %14.2f %12.1f%n", algorithm,
+                percentile(latencies, 0.5), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                latencies[checks - 1] / 1e3, (double) scriptTime / checks, (double) commands / checks,
+                (double) memory / counters.size());
+    }
+
+    /**
+     * 读取 INFO commandstats，每条统计形如 calls=10,usec=35,usec_per_call=3.50,...
+     * @return 命令名 -> {调用次数, 总耗时（微秒）}
+     */
+    private Map<String, long[]> commandStats() {
+        Properties info = template.execute((RedisCallback<Properties>) connection ->
+                connection.serverCommands().info("commandstats"));
+        Map<String, long[]> stats = new HashMap<>();
+        if(info == null) return stats;
+        for (String name : info.stringPropertyNames()) {
+            if(!name.startsWith("cmdstat_")) continue;
+            long calls = 0, usec = 0;
+            for (String field : info.getProperty(name).split(",")) {
+                String[] pair = field.split("=");
+                if(pair[0].equals("calls")) calls = Long.parseLong(pair[1]);
+                if(pair[0].equals("usec")) usec = Long.parseLong(pair[1]);
+            }
+            stats.put(name.substring("cmdstat_".length()), new long[]{ calls, usec });
+        }
+        return stats;
+    }
+
+    private long memoryUsage(String key) {
+        Object result = template.execute((RedisCallback<Object>) connection -> connection.execute("MEMORY",
+                "USAGE".getBytes(StandardCharsets.UTF_8), key.getBytes(StandardCharsets.UTF_8)));
+        return result instanceof Number number ? number.longValue() : 0;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e3;
+    }
+}
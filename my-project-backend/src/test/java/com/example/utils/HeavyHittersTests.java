@@ -0,0 +1,31 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+class HeavyHittersTests {
+
+    @Test
+    void murmur3MatchesReferenceVectors() {
+        Assertions.assertEquals(0, HeavyHitters.murmur3(new byte[0], 0));
+        Assertions.assertEquals(0x514E28B7, HeavyHitters.murmur3(new byte[0], 1));
+        Assertions.assertEquals(0x3C2569B2, HeavyHitters.murmur3("a".getBytes(StandardCharsets.UTF_8), 0));
+        Assertions.assertEquals(0xB3DD93FA, HeavyHitters.murmur3("abc".getBytes(StandardCharsets.UTF_8), 0));
+        Assertions.assertEquals(0x43ED676A, HeavyHitters.murmur3("abcd".getBytes(StandardCharsets.UTF_8), 0));
+        Assertions.assertEquals(0xFAF6CDB3, HeavyHitters.murmur3("Hello, world!".getBytes(StandardCharsets.UTF_8), 1234));
+    }
+
+    @Test
+    void hashCodeCollisionsDoNotShareCounters() {
+        String victim = "Aa".repeat(8);
+        String attacker = "BB".repeat(8);
+        Assertions.assertEquals(victim.hashCode(), attacker.hashCode());
+        HeavyHitters sketch = new HeavyHitters(4096, 4, 6, 20);
+        for (int i = 0; i < 1000; i++)
+            sketch.add(attacker);
+        Assertions.assertEquals(1000, sketch.estimate(attacker));
+        Assertions.assertEquals(0, sketch.estimate(victim));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.utils;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.entity.AuthUser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.Mockito;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Jwt令牌解析的基准测试，默认不执行，通过 -Dbenchmark=true 开启
+ * 多个线程随机解析一批已签发的令牌，对比每次请求都重新构建算法与校验器、共享校验器以及共享校验器加已验证令牌缓存三种方式，
+ * 输出吞吐量以及单次解析耗时的分位数，黑名单与限流使用替身，只衡量验签与解析本身
+ * 可选参数：benchmark.threads 线程数量，benchmark.tokens 令牌数量，benchmark.operations 每个线程的解析次数
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JwtUtilsBenchmarkTests {
+
+    private static final String KEY = "benchmark-secret-key";
+
+    @Test
+    void resolveJwtThroughput() throws InterruptedException {
+        int threads = Integer.getInteger("benchmark.threads", 16);
+        int tokens = Integer.getInteger("benchmark.tokens", 1000);
+        int operations = Integer.getInteger("benchmark.operations", 50_000);
+        JwtUtils utils = this.utils(tokens);
+        String[] headers = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            User user = (User) User.withUsername("user-" + i).password("").roles(Const.ROLE_DEFAULT).build();
+            headers[i] = "Bearer " + utils.createJwt(user, user.getUsername(), i + 1);
+        }
+        JWTVerifier verifier = JWT.require(Algorithm.HMAC256(KEY)).build();
+        System.out.printf("threads=%d tokens=%d operations=%d%n", threads, tokens, operations);
+        System.out.printf("%-16s %12s %10s %10s %10s %10s%n", "verifier", "ops/s", "p50(us)", "p95(us)", "p99(us)", "max(us)");
+        this.run("per-call", threads, operations, headers,
+                header -> this.toUser(JWT.require(Algorithm.HMAC256(KEY)).build().verify(header.substring(7))));
+        this.run("shared", threads, operations, headers,
+                header -> this.toUser(verifier.verify(header.substring(7))));
+        this.run("shared+cache", threads, operations, headers, utils::resolveJwt);
+    }
+
+    private void run(String name, int threads, int operations, String[] headers,
+                     Function<String, AuthUser> resolver) throws InterruptedException {
+        long[][] latencies = new long[threads][operations];
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            long[] latency = latencies[i];
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < operations; j++) {
+                    String header = headers[random.nextInt(headers.length)];
+                    long begin = System.nanoTime();
+                    AuthUser user = resolver.apply(header);
+                    latency[j] = System.nanoTime() - begin;
+                    if(user == null) throw new IllegalStateException("token rejected: " + header);
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.MINUTES));
+        long elapsed = System.nanoTime() - begin;
+        long[] values = new long[threads * operations];
+        for (int i = 0; i < threads; i++)
+            System.arraycopy(latencies[i], 0, values, i * operations, operations);
+        Arrays.sort(values);
+        Assertions.assertTrue(values[0] > 0, "some resolutions did not finish");
+        System.out.printf("%-16s %12.0f %10.2f %10.2f %10.2f %10.2f%n", name,
+                values.length / (elapsed / 1e9),
+                percentile(values, 0.5), percentile(values, 0.95), percentile(values, 0.99), values[values.length - 1] / 1e3);
+    }
+
+    /**
+     * 与JwtUtils相同的声明提取方式，使三种方式的差别只在于校验器与缓存
+     */
+    private AuthUser toUser(DecodedJWT jwt) {
+        return new AuthUser(
+                jwt.getClaim("id").asInt(),
+                jwt.getClaim("name").asString(),
+                AuthorityUtils.createAuthorityList(jwt.getClaim("authorities").asArray(String.class)));
+    }
+
+    /**
+     * 签发与解析令牌的工具，黑名单始终为空，令牌申请不限流
+     */
+    private JwtUtils utils(int tokens) {
+        JwtBlacklist blacklist = Mockito.mock(JwtBlacklist.class);
+        Mockito.when(blacklist.contains(Mockito.anyString())).thenReturn(false);
+        Mockito.when(blacklist.currentEpoch(Mockito.anyInt())).thenReturn(0L);
+        FlowUtils flow = Mockito.mock(FlowUtils.class);
+        Mockito.when(flow.limitOnceUpgradeCheck(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt()))
+                .thenReturn(true);
+        JwtUtils utils = new JwtUtils();
+        ReflectionTestUtils.setField(utils, "key", KEY);
+        ReflectionTestUtils.setField(utils, "expire", 72);
+        ReflectionTestUtils.setField(utils, "cacheSize", tokens * 2);
+        ReflectionTestUtils.setField(utils, "limit_algorithm", FlowAlgorithm.FIXED_WINDOW);
+        ReflectionTestUtils.setField(utils, "blacklist", blacklist);
+        ReflectionTestUtils.setField(utils, "utils", flow);
+        utils.init();
+        return utils;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e3;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class LocalQuotaCounterTests {
+
+    @Test
+    void concurrentAcquireNeverExceedsBorrowedQuota() throws InterruptedException {
+        int limit = 1000, chunk = 16, threads = 16, attempts = 500;
+        AtomicInteger used = new AtomicInteger();
+        AtomicInteger borrows = new AtomicInteger();
+        LocalQuotaCounter counter = new LocalQuotaCounter(chunk, (key, amount) -> {
+            borrows.incrementAndGet();
+            int before = used.getAndAccumulate(amount, (current, add) -> Math.min(limit, current + add));
+            return new LocalQuotaCounter.Grant(Math.min(amount, limit - before), 60_000);
+        });
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < attempts; j++) {
+                        if(counter.tryAcquire("127.0.0.1")) admitted.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(limit, admitted.get());
+        Assertions.assertTrue(borrows.get() <= limit / chunk + 2, "borrows: " + borrows.get());
+    }
+
+    @Test
+    void deniedGrantIsCachedUntilExpired() throws InterruptedException {
+        AtomicInteger borrows = new AtomicInteger();
+        LocalQuotaCounter counter = new LocalQuotaCounter(4, (key, amount) -> {
+            borrows.incrementAndGet();
+            return new LocalQuotaCounter.Grant(0, 50);
+        });
+        for (int i = 0; i < 100; i++)
+            Assertions.assertFalse(counter.tryAcquire("127.0.0.1"));
+        Assertions.assertEquals(1, borrows.get());
+        Thread.sleep(60);
+        counter.purge();
+        Assertions.assertEquals(0, counter.size());
+        Assertions.assertFalse(counter.tryAcquire("127.0.0.1"));
+        Assertions.assertEquals(2, borrows.get());
+    }
+
+    @Test
+    void slowBorrowDoesNotBlockOtherKeys() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger slowBorrows = new AtomicInteger();
+        LocalQuotaCounter counter = new LocalQuotaCounter(4, (key, amount) -> {
+            if(key.equals("slow")) {
+                slowBorrows.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new LocalQuotaCounter.Grant(amount, 60_000);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++)
+            executor.execute(() -> counter.tryAcquire("slow"));
+        while (slowBorrows.get() == 0)
+            Thread.onSpinWait();
+        for (int i = 0; i < 64; i++)
+            Assertions.assertTrue(counter.tryAcquire("10.0.0." + i));
+        release.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, slowBorrows.get());
+    }
+}
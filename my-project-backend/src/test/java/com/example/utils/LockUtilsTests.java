@@ -0,0 +1,96 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis租约的过期与释放，Redis由带可控时钟的内存替身实现，释放脚本按其语义比较令牌后删除
+ */
+class LockUtilsTests {
+
+    private static final long LEASE = 1000;
+    private static final String KEY = Const.LOCK_ACCOUNT_NAME + "alice";
+
+    //键 -> {令牌, 过期时间}
+    private final Map<String, Object[]> store = new HashMap<>();
+    private long now;
+    private LockUtils lock;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        StringRedisTemplate template = Mockito.mock(StringRedisTemplate.class);
+        ValueOperations<String, String> operations = Mockito.mock(ValueOperations.class);
+        Mockito.when(template.opsForValue()).thenReturn(operations);
+        Mockito.when(operations.setIfAbsent(Mockito.anyString(), Mockito.anyString(), Mockito.anyLong(), Mockito.eq(TimeUnit.MILLISECONDS)))
+                .thenAnswer(invocation -> {
+                    String key = invocation.getArgument(0);
+                    if(this.get(key) != null) return false;
+                    store.put(key, new Object[]{ invocation.getArgument(1), now + invocation.<Long>getArgument(2) });
+                    return true;
+                });
+        Mockito.when(template.execute(Mockito.<RedisScript<Long>>any(), Mockito.anyList(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    String key = ((List<String>) invocation.getArgument(1)).get(0);
+                    if(!invocation.getArgument(2).equals(this.get(key))) return 0L;
+                    store.remove(key);
+                    return 1L;
+                });
+        lock = new LockUtils();
+        ReflectionTestUtils.setField(lock, "template", template);
+        ReflectionTestUtils.setField(lock, "stripes", 16);
+        ReflectionTestUtils.setField(lock, "lease", LEASE);
+        lock.init();
+    }
+
+    @Test
+    void heldLeaseIsBusyUntilExpired() {
+        String result = lock.executeLeased(KEY, () -> {
+            Assertions.assertEquals("busy", lock.executeLeased(KEY, () -> "acquired", () -> "busy"));
+            now += LEASE;
+            return lock.executeLeased(KEY, () -> "acquired", () -> "busy");
+        }, () -> "busy");
+        Assertions.assertEquals("acquired", result);
+    }
+
+    @Test
+    void releaseOnlyDeletesOwnLease() {
+        lock.executeLeased(KEY, () -> {
+            now += LEASE;
+            Assertions.assertNull(this.get(Const.LOCK_LEASE + KEY));
+            store.put(Const.LOCK_LEASE + KEY, new Object[]{ "other-node", now + LEASE });
+            return null;
+        }, () -> null);
+        Assertions.assertEquals("other-node", this.get(Const.LOCK_LEASE + KEY));
+        Assertions.assertEquals("busy", lock.executeLeased(KEY, () -> "acquired", () -> "busy"));
+    }
+
+    @Test
+    void releasedAfterActionThrows() {
+        Assertions.assertThrows(IllegalStateException.class, () -> lock.executeLeased(KEY, () -> {
+            throw new IllegalStateException();
+        }, () -> null));
+        Assertions.assertNull(this.get(Const.LOCK_LEASE + KEY));
+        Assertions.assertEquals("acquired", lock.executeLeased(KEY, () -> "acquired", () -> "busy"));
+    }
+
+    /**
+     * 读取未过期的令牌
+     */
+    private String get(String key) {
+        Object[] entry = store.get(key);
+        if(entry == null || (long) entry[1] <= now) return null;
+        return (String) entry[0];
+    }
+}
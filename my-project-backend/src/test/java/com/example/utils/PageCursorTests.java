@@ -0,0 +1,42 @@
+package com.example.utils;
+
+import com.example.entity.vo.response.CursorPageVO;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+class PageCursorTests {
+
+    @Test
+    void cursorRoundTrips() {
+        PageCursor cursor = new PageCursor(new Date(1700000000000L), 42);
+        String encoded = cursor.encode();
+        Assertions.assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+        Assertions.assertEquals(cursor, PageCursor.decode(encoded));
+        Assertions.assertNull(PageCursor.decode(null));
+        Assertions.assertNull(PageCursor.decode(""));
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        Assertions.assertThrows(ValidationException.class, () -> PageCursor.decode("not a cursor"));
+        Assertions.assertThrows(ValidationException.class, () -> PageCursor.decode("MTIzNDU"));
+        Assertions.assertThrows(ValidationException.class, () -> PageCursor.decode("YWJjOjEy"));
+    }
+
+    @Test
+    void extraRowMeansNextPage() {
+        List<Integer> rows = IntStream.rangeClosed(1, 6).boxed().toList();
+        CursorPageVO<Integer> page = CursorPageVO.of(rows, 5, id -> new PageCursor(new Date(id), id));
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5), page.list());
+        Assertions.assertEquals(new PageCursor(new Date(5), 5), PageCursor.decode(page.next()));
+
+        CursorPageVO<Integer> last = CursorPageVO.of(rows.subList(0, 5), 5, id -> new PageCursor(new Date(id), id));
+        Assertions.assertEquals(5, last.list().size());
+        Assertions.assertNull(last.next());
+    }
+}
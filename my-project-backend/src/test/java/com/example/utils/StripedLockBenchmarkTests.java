@@ -0,0 +1,106 @@
+package com.example.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 按IP加锁的竞争基准测试，默认不执行，通过 -Dbenchmark=true 开启
+ * 多个线程随机选取大量IP中的一个加锁后执行很短的临界区，对比对字符串调用intern后加锁与不同分段数量的分段锁，
+ * 输出吞吐量以及单次加锁执行耗时的分位数
+ * 可选参数：benchmark.threads 线程数量，benchmark.ips IP数量，benchmark.operations 每个线程的操作次数，
+ * benchmark.stripes 分段数量列表
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StripedLockBenchmarkTests {
+
+    @Test
+    void lockContentionAcrossAddresses() throws InterruptedException {
+        int threads = Integer.getInteger("benchmark.threads", 32);
+        int ips = Integer.getInteger("benchmark.ips", 100_000);
+        int operations = Integer.getInteger("benchmark.operations", 100_000);
+        String[] addresses = new String[ips];
+        for (int i = 0; i < ips; i++)
+            addresses[i] = "10." + (i >>> 16 & 0xFF) + "." + (i >>> 8 & 0xFF) + "." + (i & 0xFF);
+        System.out.printf("threads=%d ips=%d operations=%d%n", threads, ips, operations);
+        System.out.printf("%-14s %12s %10s %10s %10s %10s%n", "lock", "ops/s", "p50(us)", "p95(us)", "p99(us)", "max(us)");
+        this.run("intern", threads, operations, addresses, (ip, action) -> {
+            synchronized (new String(ip).intern()) {
+                action.run();
+            }
+        });
+        for (String value : System.getProperty("benchmark.stripes", "1,16,256,4096").split(",")) {
+            int stripes = Integer.parseInt(value.strip());
+            LockUtils lock = new LockUtils();
+            ReflectionTestUtils.setField(lock, "stripes", stripes);
+            lock.init();
+            this.run("striped-" + stripes, threads, operations, addresses, (ip, action) -> lock.executeLocal(ip, () -> {
+                action.run();
+                return null;
+            }));
+        }
+    }
+
+    private void run(String name, int threads, int operations, String[] addresses,
+                     BiConsumer<String, Runnable> locker) throws InterruptedException {
+        long[][] latencies = new long[threads][operations];
+        AtomicLong work = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            long[] latency = latencies[i];
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < operations; j++) {
+                    String ip = addresses[random.nextInt(addresses.length)];
+                    long begin = System.nanoTime();
+                    locker.accept(ip, () -> this.criticalSection(work));
+                    latency[j] = System.nanoTime() - begin;
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.MINUTES));
+        long elapsed = System.nanoTime() - begin;
+        Assertions.assertEquals((long) threads * operations, work.get());
+        long[] values = new long[threads * operations];
+        for (int i = 0; i < threads; i++)
+            System.arraycopy(latencies[i], 0, values, i * operations, operations);
+        Arrays.sort(values);
+        System.out.printf("%-14s %12.0f %10.2f %10.2f %10.2f %10.2f%n", name,
+                values.length / (elapsed / 1e9),
+                percentile(values, 0.5), percentile(values, 0.95), percentile(values, 0.99), values[values.length - 1] / 1e3);
+    }
+
+    /**
+     * 模拟限流计数、验证码存储等持锁期间的少量计算
+     */
+    private void criticalSection(AtomicLong work) {
+        long spin = System.nanoTime() + 1_000;
+        while (System.nanoTime() < spin)
+            Thread.onSpinWait();
+        work.incrementAndGet();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e3;
+    }
+}